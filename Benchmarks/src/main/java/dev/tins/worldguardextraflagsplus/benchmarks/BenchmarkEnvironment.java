@@ -0,0 +1,475 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Server;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.mockito.Answers;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.bukkit.WorldEditPlugin;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.index.ChunkHashTable;
+import com.sk89q.worldguard.protection.managers.index.PriorityRTreeIndex;
+import com.sk89q.worldguard.protection.managers.storage.MemoryRegionDatabase;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+import com.sk89q.worldguard.session.Session;
+import com.tcoded.folialib.FoliaLib;
+import com.tcoded.folialib.impl.ServerImplementation;
+
+import lombok.Getter;
+import dev.tins.worldguardextraflagsplus.Messages;
+import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
+import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderBridge;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderCache;
+
+/**
+ * Headless server the benchmarks run against.
+ * Bukkit, WorldEdit and WorldGuard are stubbed just enough for the plugin code to run,
+ * regions live in an in-memory region manager filled with a seeded random layout.
+ * Scheduled entity tasks go through the {@link StubScheduler}, which runs them inline by default.
+ * Everything the measured code calls is a hand-written {@link Stubs stub} that allocates nothing,
+ * Mockito is only used for the server and plugins the benchmarks touch while setting up.
+ */
+public class BenchmarkEnvironment
+{
+	public static final int WORLD_SIZE = 1024;
+	public static final int MIN_Y = -64;
+	public static final int MAX_Y = 319;
+
+	// Players and edits stay in the lower part of the world, where most regions are
+	public static final int ACTIVE_MAX_Y = 127;
+
+	private static final List<String> BLOCK_MATERIALS = List.of("STONE", "DIRT", "GRASS_BLOCK", "OAK_PLANKS", "COBBLESTONE", "SAND", "GLASS", "TNT");
+	private static final List<String> BLOCKABLE_ITEMS = List.of("MACE", "FIREWORK_ROCKET", "WIND_CHARGE", "TOTEM_OF_UNDYING", "TRIDENT");
+	private static final List<String> EFFECTS = List.of("speed", "slowness", "haste", "jump_boost", "night_vision", "invisibility");
+
+	// A region gets each flag with this chance
+	private static final double FLAG_CHANCE = 0.3;
+
+	@Getter private static JavaPlugin plugin;
+	@Getter private static StubScheduler scheduler;
+	@Getter private static PlaceholderCache placeholderCache;
+
+	@Getter private final org.bukkit.World bukkitWorld;
+	@Getter private final World world;
+
+	@Getter private final RegionManager regionManager;
+	@Getter private final RegionContainer regionContainer;
+
+	@Getter private final WorldGuardPlugin worldGuardPlugin;
+	@Getter private final Stubs.SessionManagerStub sessionManager;
+	@Getter private final LocalPlayerCache localPlayerCache;
+
+	@Getter private final FlagSnapshotCache flagSnapshotCache;
+
+	private final Random random;
+
+	/**
+	 * @param regions Number of regions spread over the {@link #WORLD_SIZE} square
+	 * @param seed Seed of the region layout, the same seed gives the same layout
+	 */
+	public BenchmarkEnvironment(int regions, long seed)
+	{
+		BenchmarkEnvironment.bootstrap();
+
+		this.random = new Random(seed);
+
+		Stubs.WorldStub bukkitWorld = Stubs.create(Stubs.WorldStub.class);
+		bukkitWorld.name = "world";
+		bukkitWorld.uid = new UUID(seed, regions);
+		bukkitWorld.minHeight = BenchmarkEnvironment.MIN_Y;
+		bukkitWorld.maxHeight = BenchmarkEnvironment.MAX_Y + 1;
+
+		this.bukkitWorld = bukkitWorld;
+		this.world = BukkitAdapter.adapt(bukkitWorld);
+
+		this.regionManager = new RegionManager(new MemoryRegionDatabase(), new ChunkHashTable.Factory(new PriorityRTreeIndex.Factory()), WorldGuard.getInstance().getFlagRegistry());
+		this.regionManager.addRegion(new GlobalProtectedRegion(ProtectedRegion.GLOBAL_REGION));
+		for (int i = 0; i < regions; i++)
+		{
+			this.regionManager.addRegion(this.createRegion(i));
+		}
+
+		Stubs.RegionQueryStub regionQuery = Stubs.create(Stubs.RegionQueryStub.class);
+		regionQuery.regionManager = this.regionManager;
+
+		Stubs.RegionContainerStub regionContainer = Stubs.create(Stubs.RegionContainerStub.class);
+		regionContainer.regionManager = this.regionManager;
+		regionContainer.loaded = List.of(this.regionManager);
+		regionContainer.query = regionQuery;
+		this.regionContainer = regionContainer;
+
+		// Nobody bypasses, every call goes through the flag checks
+		this.worldGuardPlugin = BenchmarkEnvironment.stub(WorldGuardPlugin.class);
+		this.sessionManager = Stubs.create(Stubs.SessionManagerStub.class);
+
+		// Players are wrapped once, the mocked plugin never wraps a player on a measured path
+		this.localPlayerCache = new LocalPlayerCache(this.worldGuardPlugin);
+
+		this.flagSnapshotCache = new FlagSnapshotCache(this.regionContainer, BenchmarkEnvironment.getPluginFlags());
+	}
+
+	public ApplicableRegionSet getApplicableRegions(BlockVector3 position)
+	{
+		return this.regionManager.getApplicableRegions(position);
+	}
+
+	public BlockVector3 randomPosition()
+	{
+		return BlockVector3.at(this.random.nextInt(BenchmarkEnvironment.WORLD_SIZE), this.random.nextInt(BenchmarkEnvironment.ACTIVE_MAX_Y + 1), this.random.nextInt(BenchmarkEnvironment.WORLD_SIZE));
+	}
+
+	public Location toLocation(BlockVector3 position)
+	{
+		return new Location(this.world, position.x() + 0.5, position.y(), position.z() + 0.5);
+	}
+
+	public Material randomBlockMaterial()
+	{
+		return Material.matchMaterial(BenchmarkEnvironment.BLOCK_MATERIALS.get(this.random.nextInt(BenchmarkEnvironment.BLOCK_MATERIALS.size())));
+	}
+
+	/**
+	 * Creates an online player standing at the given position, wrapped the way WorldGuard wraps it.
+	 */
+	public Stubs.LocalPlayerStub createPlayer(BlockVector3 position)
+	{
+		UUID playerId = new UUID(this.random.nextLong(), this.random.nextLong());
+		String name = "player-" + playerId;
+
+		Stubs.ScoreboardStub scoreboard = Stubs.create(Stubs.ScoreboardStub.class);
+		scoreboard.team = Stubs.create(Stubs.TeamStub.class);
+
+		Stubs.PlayerStub player = Stubs.create(Stubs.PlayerStub.class);
+		player.uniqueId = playerId;
+		player.name = name;
+		player.world = this.bukkitWorld;
+		player.level = this.random.nextInt(64);
+		player.scoreboard = scoreboard;
+
+		Stubs.LocalPlayerStub localPlayer = Stubs.create(Stubs.LocalPlayerStub.class);
+		localPlayer.player = player;
+		localPlayer.uniqueId = playerId;
+		localPlayer.name = name;
+		localPlayer.world = this.world;
+		localPlayer.location = this.toLocation(position);
+
+		Mockito.when(this.worldGuardPlugin.wrapPlayer(player)).thenReturn(localPlayer);
+		this.localPlayerCache.add(player);
+
+		return localPlayer;
+	}
+
+	/**
+	 * Creates a WorldGuard session, handlers are attached with {@link Stubs.SessionStub#register}.
+	 */
+	public Stubs.SessionStub createSession()
+	{
+		Stubs.SessionStub session = Stubs.create(Stubs.SessionStub.class);
+		session.manager = this.sessionManager;
+
+		return session;
+	}
+
+	/**
+	 * Makes the session the one the session manager returns for the player.
+	 */
+	public void registerSession(LocalPlayer player, Session session)
+	{
+		this.sessionManager.register(player, session);
+	}
+
+	/**
+	 * Creates a cube of blocks starting at the given position, the last layer is only partially filled when needed.
+	 */
+	public List<Block> createBlocks(BlockVector3 origin, int count)
+	{
+		int side = (int) Math.ceil(Math.cbrt(count));
+
+		List<Block> blocks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			int x = origin.x() + i % side;
+			int z = origin.z() + (i / side) % side;
+			int y = origin.y() + i / (side * side);
+
+			Stubs.BlockStub block = Stubs.create(Stubs.BlockStub.class);
+			block.world = this.bukkitWorld;
+			block.x = x;
+			block.y = y;
+			block.z = z;
+			block.type = this.random.nextInt(4) == 0 ? Material.AIR : this.randomBlockMaterial();
+
+			blocks.add(block);
+		}
+
+		return blocks;
+	}
+
+	private ProtectedRegion createRegion(int index)
+	{
+		String id = "region-" + index;
+
+		int sizeX = 16 + this.random.nextInt(113);
+		int sizeZ = 16 + this.random.nextInt(113);
+		int minX = this.random.nextInt(BenchmarkEnvironment.WORLD_SIZE - sizeX);
+		int minZ = this.random.nextInt(BenchmarkEnvironment.WORLD_SIZE - sizeZ);
+
+		// Half of the regions span the whole height, the others only a slice of it
+		int minY = BenchmarkEnvironment.MIN_Y;
+		int maxY = BenchmarkEnvironment.MAX_Y;
+		if (this.random.nextBoolean())
+		{
+			minY = this.random.nextInt(BenchmarkEnvironment.ACTIVE_MAX_Y);
+			maxY = Math.min(BenchmarkEnvironment.MAX_Y, minY + 16 + this.random.nextInt(97));
+		}
+
+		ProtectedRegion region;
+		if (index % 4 == 3)
+		{
+			// Triangles, polygons are never resolved through the section snapshots
+			List<BlockVector2> points = List.of(
+					BlockVector2.at(minX, minZ),
+					BlockVector2.at(minX + sizeX, minZ),
+					BlockVector2.at(minX, minZ + sizeZ));
+
+			region = new ProtectedPolygonalRegion(id, points, minY, maxY);
+		}
+		else
+		{
+			region = new ProtectedCuboidRegion(id, BlockVector3.at(minX, minY, minZ), BlockVector3.at(minX + sizeX, maxY, minZ + sizeZ));
+		}
+
+		region.setPriority(this.random.nextInt(4));
+
+		this.setFlag(region, Flags.ALLOW_BLOCK_PLACE, this.randomSubset(BenchmarkEnvironment.BLOCK_MATERIALS));
+		this.setFlag(region, Flags.DENY_BLOCK_PLACE, this.randomSubset(BenchmarkEnvironment.BLOCK_MATERIALS));
+		this.setFlag(region, Flags.ALLOW_BLOCK_BREAK, this.randomSubset(BenchmarkEnvironment.BLOCK_MATERIALS));
+		this.setFlag(region, Flags.DENY_BLOCK_BREAK, this.randomSubset(BenchmarkEnvironment.BLOCK_MATERIALS));
+		this.setFlag(region, Flags.PERMIT_COMPLETELY, this.randomSubset(BenchmarkEnvironment.BLOCKABLE_ITEMS));
+		this.setFlag(region, Flags.WORLDEDIT, this.random.nextBoolean() ? "deny" : "allow");
+		this.setFlag(region, Flags.ENTRY_MIN_LEVEL, this.random.nextInt(20) + " XP");
+		this.setFlag(region, Flags.ENTRY_MAX_LEVEL, (40 + this.random.nextInt(20)) + " XP");
+		this.setFlag(region, Flags.BLOCKED_EFFECTS, this.randomSubset(BenchmarkEnvironment.EFFECTS));
+		this.setFlag(region, Flags.WALK_SPEED, this.random.nextDouble());
+		this.setFlag(region, Flags.FLY_SPEED, this.random.nextDouble());
+		this.setFlag(region, Flags.FLY, this.random.nextBoolean() ? "allow" : "deny");
+		this.setFlag(region, Flags.GLIDE, this.random.nextBoolean() ? "ALLOW" : "DENY");
+		this.setFlag(region, Flags.GODMODE, this.random.nextBoolean() ? "allow" : "deny");
+		this.setFlag(region, Flags.DISABLE_COLLISION, this.random.nextBoolean());
+
+		List<String> givenEffects = new ArrayList<>();
+		for (String effect : this.randomSubset(BenchmarkEnvironment.EFFECTS))
+		{
+			givenEffects.add(effect + " " + this.random.nextInt(3));
+		}
+		this.setFlag(region, Flags.GIVE_EFFECTS, givenEffects);
+
+		return region;
+	}
+
+	/**
+	 * Sets the flag with the given chance, going through unmarshal like values loaded from the region files.
+	 */
+	private <T> void setFlag(ProtectedRegion region, Flag<T> flag, Object rawValue)
+	{
+		if (this.random.nextDouble() < BenchmarkEnvironment.FLAG_CHANCE)
+		{
+			region.setFlag(flag, flag.unmarshal(rawValue));
+		}
+	}
+
+	private List<String> randomSubset(List<String> values)
+	{
+		List<String> subset = new ArrayList<>();
+		for (String value : values)
+		{
+			if (this.random.nextBoolean())
+			{
+				subset.add(value);
+			}
+		}
+
+		if (subset.isEmpty())
+		{
+			subset.add(values.get(this.random.nextInt(values.size())));
+		}
+
+		return subset;
+	}
+
+	/**
+	 * Installs the stub server, WorldEdit plugin, scheduler and messages once per JVM.
+	 */
+	private static synchronized void bootstrap()
+	{
+		if (BenchmarkEnvironment.plugin != null)
+		{
+			return;
+		}
+
+		Logger logger = Logger.getLogger("Benchmarks");
+		logger.setLevel(Level.WARNING);
+
+		Map<Class<?>, Registry<?>> registries = new ConcurrentHashMap<>();
+
+		Server server = BenchmarkEnvironment.stub(Server.class);
+		Mockito.when(server.getLogger()).thenReturn(logger);
+		Mockito.when(server.getName()).thenReturn("Benchmarks");
+		Mockito.when(server.getVersion()).thenReturn("benchmarks");
+		Mockito.when(server.getBukkitVersion()).thenReturn("1.20.6-R0.1-SNAPSHOT");
+		Mockito.when(server.isPrimaryThread()).thenReturn(true);
+		Mockito.when(server.getRegistry(ArgumentMatchers.any())).thenAnswer(invocation -> registries.computeIfAbsent(invocation.getArgument(0), BenchmarkEnvironment::createRegistry));
+
+		Bukkit.setServer(server);
+
+		// BukkitAdapter looks up the platform adapter through the plugin instance
+		BenchmarkEnvironment.setStaticField(WorldEditPlugin.class, WorldEditPlugin.class, BenchmarkEnvironment.stub(WorldEditPlugin.class));
+
+		File dataFolder;
+		try
+		{
+			dataFolder = Files.createTempDirectory("wgefp-benchmarks").toFile();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("Failed to create the benchmark data folder", e);
+		}
+
+		Plugin worldGuard = BenchmarkEnvironment.stub(Plugin.class);
+		Mockito.when(worldGuard.getDataFolder()).thenReturn(dataFolder);
+
+		PluginManager pluginManager = BenchmarkEnvironment.stub(PluginManager.class);
+		Mockito.when(pluginManager.getPlugin("WorldGuard")).thenReturn(worldGuard);
+		Mockito.when(server.getPluginManager()).thenReturn(pluginManager);
+
+		JavaPlugin plugin = BenchmarkEnvironment.stub(JavaPlugin.class);
+		Mockito.when(plugin.getName()).thenReturn("WorldGuardExtraFlagsPlus");
+		Mockito.when(plugin.getServer()).thenReturn(server);
+		Mockito.when(plugin.getLogger()).thenReturn(logger);
+		Mockito.when(plugin.isEnabled()).thenReturn(true);
+		Mockito.when(plugin.getResource(ArgumentMatchers.anyString())).thenAnswer(invocation -> BenchmarkEnvironment.class.getClassLoader().getResourceAsStream(invocation.getArgument(0)));
+
+		StubScheduler scheduler = new StubScheduler();
+
+		FoliaLib foliaLib = BenchmarkEnvironment.stub(FoliaLib.class);
+		Mockito.when(foliaLib.getScheduler()).thenReturn(Stubs.forward(ServerImplementation.class, scheduler));
+
+		WorldGuardUtils.initializeScheduler(plugin, foliaLib);
+
+		Messages.initialize(plugin);
+		WorldGuardUtils.registerMessageSender(Messages::sendMessageWithCooldown);
+
+		BenchmarkEnvironment.placeholderCache = new PlaceholderCache(new PlaceholderBridge(plugin));
+		BenchmarkEnvironment.placeholderCache.load(Messages.getPlaceholderCacheSection());
+
+		BenchmarkEnvironment.scheduler = scheduler;
+		BenchmarkEnvironment.plugin = plugin;
+	}
+
+	/**
+	 * Registry that creates a stub for every key it is asked for, like potion effect types.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Keyed> Registry<T> createRegistry(Class<?> type)
+	{
+		Map<NamespacedKey, T> entries = new ConcurrentHashMap<>();
+
+		// Default methods like match() run for real and end up in get()
+		Registry<T> registry = Mockito.mock(Registry.class, Mockito.withSettings().stubOnly().defaultAnswer(Answers.CALLS_REAL_METHODS));
+		Mockito.doAnswer(invocation -> entries.computeIfAbsent(invocation.getArgument(0), key ->
+		{
+			T entry = (T) Mockito.mock(type, Mockito.withSettings().stubOnly().name(key.toString()));
+			Mockito.when(entry.getKey()).thenReturn(key);
+			return entry;
+		})).when(registry).get(ArgumentMatchers.any());
+
+		return registry;
+	}
+
+	private static Set<Flag<?>> getPluginFlags()
+	{
+		Set<Flag<?>> flags = new HashSet<>();
+
+		for (Field field : Flags.class.getFields())
+		{
+			try
+			{
+				flags.add((Flag<?>) field.get(null));
+			}
+			catch (IllegalArgumentException | IllegalAccessException ignored)
+			{
+			}
+		}
+
+		return flags;
+	}
+
+	private static void setStaticField(Class<?> owner, Class<?> type, Object value)
+	{
+		for (Field field : owner.getDeclaredFields())
+		{
+			if (Modifier.isStatic(field.getModifiers()) && field.getType() == type)
+			{
+				try
+				{
+					field.setAccessible(true);
+					field.set(null, value);
+					return;
+				}
+				catch (IllegalAccessException e)
+				{
+					throw new IllegalStateException("Failed to set " + owner.getSimpleName() + "." + field.getName(), e);
+				}
+			}
+		}
+
+		throw new IllegalStateException("No static " + type.getSimpleName() + " field in " + owner.getSimpleName());
+	}
+
+	static <T> T stub(Class<T> type)
+	{
+		return Mockito.mock(type, Mockito.withSettings().stubOnly());
+	}
+}
@@ -0,0 +1,91 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sk89q.worldedit.bukkit.BukkitPlayer;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.bukkit.cause.Cause;
+import com.sk89q.worldguard.bukkit.event.block.BreakBlockEvent;
+import com.sk89q.worldguard.bukkit.event.block.PlaceBlockEvent;
+
+import dev.tins.worldguardextraflagsplus.listeners.BlockListener;
+
+/**
+ * Allow/deny block place and break resolution for single block and multi block events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class BlockListenerBenchmark
+{
+	// Power of two, events are picked round robin
+	private static final int EVENTS = 1024;
+
+	@Param({"0", "16", "128", "1024"})
+	public int regions;
+
+	@Param({"1", "64"})
+	public int blocksPerEvent;
+
+	private BlockListener listener;
+
+	private PlaceBlockEvent[] placeEvents;
+	private BreakBlockEvent[] breakEvents;
+
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment environment = new BenchmarkEnvironment(this.regions, 1L);
+
+		this.listener = new BlockListener(environment.getLocalPlayerCache(), environment.getSessionManager(), environment.getFlagSnapshotCache());
+
+		Player player = ((BukkitPlayer) environment.createPlayer(environment.randomPosition())).getPlayer();
+
+		this.placeEvents = new PlaceBlockEvent[BlockListenerBenchmark.EVENTS];
+		this.breakEvents = new BreakBlockEvent[BlockListenerBenchmark.EVENTS];
+		for (int i = 0; i < BlockListenerBenchmark.EVENTS; i++)
+		{
+			BlockVector3 origin = environment.randomPosition();
+
+			this.placeEvents[i] = new PlaceBlockEvent(null, Cause.create(player), environment.getBukkitWorld(), environment.createBlocks(origin, this.blocksPerEvent), environment.randomBlockMaterial());
+			this.breakEvents[i] = new BreakBlockEvent(null, Cause.create(player), environment.getBukkitWorld(), environment.createBlocks(origin, this.blocksPerEvent), Material.AIR);
+		}
+	}
+
+	@Benchmark
+	public PlaceBlockEvent place()
+	{
+		PlaceBlockEvent event = this.placeEvents[this.next++ & (BlockListenerBenchmark.EVENTS - 1)];
+		this.listener.onBlockPlaceEvent(event);
+
+		return event;
+	}
+
+	@Benchmark
+	public BreakBlockEvent breakBlocks()
+	{
+		BreakBlockEvent event = this.breakEvents[this.next++ & (BlockListenerBenchmark.EVENTS - 1)];
+		this.listener.onBlockBreakEvent(event);
+
+		return event;
+	}
+}
@@ -0,0 +1,117 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.LocalPlayer;
+
+import dev.tins.worldguardextraflagsplus.listeners.EntityListener;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PermitCompletelyFlagHandler;
+
+/**
+ * The permit-completely check every item interaction goes through.
+ * Items are a mix of blockable and common ones, like a server would see them.
+ * Every player has a session with the permit-completely handler initialized at their position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class EntityListenerBenchmark
+{
+	// Power of two, interactions are picked round robin
+	private static final int INTERACTIONS = 1024;
+
+	private static final List<String> ITEMS = List.of("MACE", "FIREWORK_ROCKET", "WIND_CHARGE", "TOTEM_OF_UNDYING", "TRIDENT", "STONE", "DIAMOND_SWORD", "BOW", "COOKED_BEEF", "OAK_PLANKS");
+
+	private static final MethodHandle IS_BLOCKED;
+	static
+	{
+		try
+		{
+			IS_BLOCKED = MethodHandles.privateLookupIn(EntityListener.class, MethodHandles.lookup())
+					.findVirtual(EntityListener.class, "isBlocked", MethodType.methodType(boolean.class, LocalPlayer.class, Material.class));
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	@Param({"0", "16", "128", "1024"})
+	public int regions;
+
+	private EntityListener listener;
+
+	private LocalPlayer[] players;
+	private Material[] items;
+
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment environment = new BenchmarkEnvironment(this.regions, 1L);
+
+		this.listener = new EntityListener(environment.getLocalPlayerCache(), environment.getSessionManager(), environment.getFlagSnapshotCache());
+
+		// Items missing from this server version are skipped
+		List<Material> materials = new ArrayList<>();
+		for (String item : EntityListenerBenchmark.ITEMS)
+		{
+			Material material = Material.matchMaterial(item);
+			if (material != null)
+			{
+				materials.add(material);
+			}
+		}
+
+		this.players = new LocalPlayer[EntityListenerBenchmark.INTERACTIONS];
+		this.items = new Material[EntityListenerBenchmark.INTERACTIONS];
+		for (int i = 0; i < EntityListenerBenchmark.INTERACTIONS; i++)
+		{
+			BlockVector3 position = environment.randomPosition();
+
+			LocalPlayer player = environment.createPlayer(position);
+
+			Stubs.SessionStub session = environment.createSession();
+			environment.registerSession(player, session);
+
+			PermitCompletelyFlagHandler handler = PermitCompletelyFlagHandler.FACTORY().create(session);
+			session.register(handler);
+
+			handler.initialize(player, environment.toLocation(position), environment.getApplicableRegions(position));
+
+			this.players[i] = player;
+			this.items[i] = materials.get(i % materials.size());
+		}
+	}
+
+	@Benchmark
+	public boolean isBlocked() throws Throwable
+	{
+		int index = this.next++ & (EntityListenerBenchmark.INTERACTIONS - 1);
+
+		return (boolean) EntityListenerBenchmark.IS_BLOCKED.invokeExact(this.listener, this.players[index], this.items[index]);
+	}
+}
@@ -0,0 +1,91 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.session.MoveType;
+import com.sk89q.worldguard.session.Session;
+
+import dev.tins.worldguardextraflagsplus.wg.handlers.EntryLevelFlagHandler;
+
+/**
+ * Region entry checks of the entry-min-level and entry-max-level flags.
+ * Player levels are random, so a part of the crossings is denied and queues the denied message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class EntryLevelFlagHandlerBenchmark
+{
+	// Power of two, crossings are picked round robin
+	private static final int CROSSINGS = 1024;
+
+	@Param({"0", "16", "128", "1024"})
+	public int regions;
+
+	private Crossing[] crossings;
+
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment environment = new BenchmarkEnvironment(this.regions, 1L);
+
+		this.crossings = new Crossing[EntryLevelFlagHandlerBenchmark.CROSSINGS];
+		for (int i = 0; i < EntryLevelFlagHandlerBenchmark.CROSSINGS; i++)
+		{
+			BlockVector3 from = environment.randomPosition();
+			BlockVector3 to = environment.randomPosition();
+
+			ApplicableRegionSet fromSet = environment.getApplicableRegions(from);
+			ApplicableRegionSet toSet = environment.getApplicableRegions(to);
+
+			Set<ProtectedRegion> entered = new HashSet<>(toSet.getRegions());
+			entered.removeAll(fromSet.getRegions());
+
+			Set<ProtectedRegion> exited = new HashSet<>(fromSet.getRegions());
+			exited.removeAll(toSet.getRegions());
+
+			LocalPlayer player = environment.createPlayer(from);
+			Session session = environment.createSession();
+
+			EntryLevelFlagHandler handler = EntryLevelFlagHandler.FACTORY(BenchmarkEnvironment.getPlaceholderCache()).create(session);
+
+			this.crossings[i] = new Crossing(handler, player, environment.toLocation(from), environment.toLocation(to), toSet, entered, exited);
+		}
+	}
+
+	@Benchmark
+	public boolean onCrossBoundary()
+	{
+		Crossing crossing = this.crossings[this.next++ & (EntryLevelFlagHandlerBenchmark.CROSSINGS - 1)];
+
+		return crossing.handler().onCrossBoundary(crossing.player(), crossing.from(), crossing.to(), crossing.toSet(), crossing.entered(), crossing.exited(), MoveType.MOVE);
+	}
+
+	private record Crossing(EntryLevelFlagHandler handler, LocalPlayer player, Location from, Location to, ApplicableRegionSet toSet, Set<ProtectedRegion> entered, Set<ProtectedRegion> exited)
+	{
+	}
+}
@@ -0,0 +1,671 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.bukkit.plugin.Plugin;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.session.MoveType;
+import com.sk89q.worldguard.session.handler.Handler;
+
+import dev.tins.worldguardextraflagsplus.wg.SchedulerStats;
+import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BlockedEffectsFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BypassHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.CollisionFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.CommandOnEntryFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.CommandOnExitFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.ConsoleCommandOnEntryFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.ConsoleCommandOnExitFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.EntryLevelFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.FlyFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.FlySpeedFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.GiveEffectsFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.GlideFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.GodmodeFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PermitCompletelyFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PlaySoundsFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PotionEffectsHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.TeleportOnEntryFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.TeleportOnExitFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.WalkSpeedFlagHandler;
+
+/**
+ * Headless load test of the session handlers, outside of JMH.
+ * Every player gets a fake session with all the handlers the plugin registers, in the same order,
+ * and walks a movement trace through the synthetic region layout of the {@link BenchmarkEnvironment}.
+ * Like WorldGuard, handlers see a boundary crossing whenever a player changes block and are ticked once a second.
+ * Handlers are called one after another for all moved players, so their CPU time and allocations can be read
+ * from the thread counters per batch instead of per call. Queued entity tasks run on the next tick of the {@link StubScheduler}.
+ *
+ * java -cp benchmarks.jar dev.tins.worldguardextraflagsplus.benchmarks.LoadSimulator --players 200 --regions 128 --trace commute
+ */
+public class LoadSimulator
+{
+	private static final int TICKS_PER_SECOND = 20;
+	private static final double TICK_BUDGET_MILLIS = 50D;
+
+	// Sprinting, about 5.6 blocks a second
+	private static final double SPEED = 0.28;
+
+	private static final String USAGE = "Usage: LoadSimulator [--players <n>] [--regions <n>] [--ticks <n>] [--warmup <n>] [--trace idle|random-walk|commute|teleport] [--seed <n>] [--inline]";
+
+	private final Options options;
+
+	private final BenchmarkEnvironment environment;
+	private final Random random;
+
+	private final List<Walker> walkers = new ArrayList<>();
+
+	private final HandlerStats[] handlerStats;
+	private final HandlerStats regionQueries = new HandlerStats("(region queries)");
+	private final HandlerStats scheduledTasks = new HandlerStats("(scheduled tasks)");
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private long crossings;
+	private long dispatched;
+
+	public static void main(String[] args)
+	{
+		Options options;
+		try
+		{
+			options = Options.parse(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println(LoadSimulator.USAGE);
+			System.exit(1);
+			return;
+		}
+
+		new LoadSimulator(options).run();
+	}
+
+	private LoadSimulator(Options options)
+	{
+		this.options = options;
+
+		this.environment = new BenchmarkEnvironment(options.regions(), options.seed());
+		this.random = new Random(options.seed());
+
+		BenchmarkEnvironment.getScheduler().setInline(options.inline());
+
+		this.threads.setThreadCpuTimeEnabled(true);
+		this.threads.setThreadAllocatedMemoryEnabled(true);
+
+		List<Handler.Factory<?>> factories = LoadSimulator.createFactories();
+		for (int i = 0; i < options.players(); i++)
+		{
+			this.walkers.add(this.createWalker(factories));
+		}
+
+		List<Handler> handlers = this.walkers.get(0).handlers;
+
+		this.handlerStats = new HandlerStats[handlers.size()];
+		for (int i = 0; i < this.handlerStats.length; i++)
+		{
+			this.handlerStats[i] = new HandlerStats(handlers.get(i).getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * The handlers registered by WorldGuardExtraFlagsPlusPlugin.onEnable, in the same order.
+	 */
+	private static List<Handler.Factory<?>> createFactories()
+	{
+		Plugin plugin = BenchmarkEnvironment.getPlugin();
+
+		return List.of(
+				BypassHandler.FACTORY(),
+				TeleportOnEntryFlagHandler.FACTORY(plugin),
+				TeleportOnExitFlagHandler.FACTORY(plugin),
+				WalkSpeedFlagHandler.FACTORY(),
+				FlySpeedFlagHandler.FACTORY(),
+				FlyFlagHandler.FACTORY(),
+				GlideFlagHandler.FACTORY(),
+				GodmodeFlagHandler.FACTORY(),
+				PlaySoundsFlagHandler.FACTORY(plugin),
+				PotionEffectsHandler.FACTORY(),
+				BlockedEffectsFlagHandler.FACTORY(),
+				GiveEffectsFlagHandler.FACTORY(),
+				CommandOnEntryFlagHandler.FACTORY(),
+				CommandOnExitFlagHandler.FACTORY(),
+				ConsoleCommandOnEntryFlagHandler.FACTORY(),
+				ConsoleCommandOnExitFlagHandler.FACTORY(),
+				EntryLevelFlagHandler.FACTORY(BenchmarkEnvironment.getPlaceholderCache()),
+				CollisionFlagHandler.FACTORY(),
+				PermitCompletelyFlagHandler.FACTORY());
+	}
+
+	private Walker createWalker(List<Handler.Factory<?>> factories)
+	{
+		BlockVector3 position = this.environment.randomPosition();
+
+		Stubs.LocalPlayerStub player = this.environment.createPlayer(position);
+
+		Stubs.SessionStub session = this.environment.createSession();
+
+		Walker walker = new Walker(player, position);
+		for (Handler.Factory<?> factory : factories)
+		{
+			Handler handler = factory.create(session);
+
+			session.register(handler);
+			walker.handlers.add(handler);
+		}
+
+		walker.moveTo(this.environment, position, position.x() + 0.5, position.z() + 0.5);
+
+		for (Handler handler : walker.handlers)
+		{
+			handler.initialize(player, walker.location, walker.regions);
+		}
+
+		return walker;
+	}
+
+	private void run()
+	{
+		long started = System.nanoTime();
+
+		List<Crossing> moved = new ArrayList<>();
+		for (int tick = 0; tick < this.options.warmup() + this.options.ticks(); tick++)
+		{
+			if (tick == this.options.warmup())
+			{
+				this.reset();
+				started = System.nanoTime();
+			}
+
+			moved.clear();
+			this.move(moved);
+
+			for (int i = 0; i < this.handlerStats.length; i++)
+			{
+				this.crossBoundaries(i, moved);
+			}
+
+			if (tick % LoadSimulator.TICKS_PER_SECOND == 0)
+			{
+				for (int i = 0; i < this.handlerStats.length; i++)
+				{
+					this.tickHandlers(i);
+				}
+			}
+
+			this.runScheduledTasks();
+		}
+
+		this.report(System.nanoTime() - started);
+	}
+
+	private void move(List<Crossing> moved)
+	{
+		long cpu = this.threads.getCurrentThreadCpuTime();
+		long allocated = this.threads.getCurrentThreadAllocatedBytes();
+
+		for (Walker walker : this.walkers)
+		{
+			Location from = walker.location;
+			ApplicableRegionSet fromSet = walker.regions;
+
+			MoveType moveType = this.options.trace().step(walker, this.random);
+			if (moveType == null)
+			{
+				continue;
+			}
+
+			BlockVector3 block = BlockVector3.at((int) Math.floor(walker.x), walker.y, (int) Math.floor(walker.z));
+			if (block.equals(walker.block) && moveType == MoveType.MOVE)
+			{
+				continue;
+			}
+
+			walker.moveTo(this.environment, block, walker.x, walker.z);
+
+			Set<ProtectedRegion> entered = new HashSet<>(walker.regions.getRegions());
+			entered.removeAll(fromSet.getRegions());
+
+			Set<ProtectedRegion> exited = new HashSet<>(fromSet.getRegions());
+			exited.removeAll(walker.regions.getRegions());
+
+			moved.add(new Crossing(walker, from, walker.location, walker.regions, entered, exited, moveType));
+		}
+
+		this.regionQueries.record(moved.size(), this.threads.getCurrentThreadCpuTime() - cpu, this.threads.getCurrentThreadAllocatedBytes() - allocated);
+
+		this.crossings += moved.size();
+	}
+
+	private void crossBoundaries(int index, List<Crossing> moved)
+	{
+		HandlerStats stats = this.handlerStats[index];
+
+		long cpu = this.threads.getCurrentThreadCpuTime();
+		long allocated = this.threads.getCurrentThreadAllocatedBytes();
+
+		for (Crossing crossing : moved)
+		{
+			try
+			{
+				crossing.walker().handlers.get(index).onCrossBoundary(crossing.walker().player, crossing.from(), crossing.to(), crossing.toSet(), crossing.entered(), crossing.exited(), crossing.moveType());
+			}
+			catch (RuntimeException e)
+			{
+				stats.recordError(e);
+			}
+		}
+
+		stats.record(moved.size(), this.threads.getCurrentThreadCpuTime() - cpu, this.threads.getCurrentThreadAllocatedBytes() - allocated);
+	}
+
+	private void tickHandlers(int index)
+	{
+		HandlerStats stats = this.handlerStats[index];
+
+		long cpu = this.threads.getCurrentThreadCpuTime();
+		long allocated = this.threads.getCurrentThreadAllocatedBytes();
+
+		for (Walker walker : this.walkers)
+		{
+			try
+			{
+				walker.handlers.get(index).tick(walker.player, walker.regions);
+			}
+			catch (RuntimeException e)
+			{
+				stats.recordError(e);
+			}
+		}
+
+		stats.record(this.walkers.size(), this.threads.getCurrentThreadCpuTime() - cpu, this.threads.getCurrentThreadAllocatedBytes() - allocated);
+	}
+
+	private void runScheduledTasks()
+	{
+		long cpu = this.threads.getCurrentThreadCpuTime();
+		long allocated = this.threads.getCurrentThreadAllocatedBytes();
+
+		int count;
+		try
+		{
+			count = BenchmarkEnvironment.getScheduler().runTick();
+		}
+		catch (RuntimeException e)
+		{
+			this.scheduledTasks.recordError(e);
+			count = 0;
+		}
+
+		this.scheduledTasks.record(count, this.threads.getCurrentThreadCpuTime() - cpu, this.threads.getCurrentThreadAllocatedBytes() - allocated);
+
+		this.dispatched += count;
+	}
+
+	private void reset()
+	{
+		for (HandlerStats stats : this.handlerStats)
+		{
+			stats.reset();
+		}
+
+		this.regionQueries.reset();
+		this.scheduledTasks.reset();
+
+		this.crossings = 0;
+		this.dispatched = 0;
+
+		BenchmarkEnvironment.getScheduler().resetScheduled();
+		WorldGuardUtils.getScheduler().getStats().reset();
+	}
+
+	private void report(long wallNanos)
+	{
+		double seconds = this.options.ticks() / (double) LoadSimulator.TICKS_PER_SECOND;
+
+		Map<String, SchedulerStats.Snapshot> tasks = new HashMap<>();
+		for (SchedulerStats.Snapshot snapshot : WorldGuardUtils.getScheduler().getStats().snapshot())
+		{
+			tasks.put(snapshot.owner(), snapshot);
+		}
+
+		System.out.printf(Locale.ROOT, "%d players, %d regions, trace %s, seed %d, %d ticks (%.1fs of game time) after %d warmup ticks, ran in %.2fs%n",
+				this.options.players(), this.options.regions(), this.options.trace().getName(), this.options.seed(),
+				this.options.ticks(), seconds, this.options.warmup(), wallNanos / 1e9);
+		System.out.printf(Locale.ROOT, "%d block changes (%.2f per player per second), %d tasks scheduled, %d run by the stub scheduler%n%n",
+				this.crossings, this.crossings / seconds / this.options.players(), BenchmarkEnvironment.getScheduler().getScheduled(), this.dispatched);
+
+		System.out.printf(Locale.ROOT, "%-34s %10s %10s %9s %10s %9s %7s %9s %9s %10s%n",
+				"Handler", "Calls", "CPU ms", "ns/call", "MB/s", "B/call", "Errors", "Tasks", "Executed", "Task avg");
+
+		long totalCpu = 0;
+		long totalAllocated = 0;
+		for (HandlerStats stats : this.handlerStats)
+		{
+			this.print(stats, tasks.remove(stats.name), seconds);
+
+			totalCpu += stats.cpuNanos;
+			totalAllocated += stats.allocatedBytes;
+		}
+
+		this.print(this.regionQueries, null, seconds);
+		this.print(this.scheduledTasks, null, seconds);
+
+		// Tasks submitted by something else than a handler, like the listeners
+		for (SchedulerStats.Snapshot snapshot : tasks.values())
+		{
+			this.print(new HandlerStats(snapshot.owner()), snapshot, seconds);
+		}
+
+		totalCpu += this.scheduledTasks.cpuNanos;
+		totalAllocated += this.scheduledTasks.allocatedBytes;
+
+		System.out.printf(Locale.ROOT, "%nHandlers and their tasks: %.3fms CPU per tick (%.1f%% of the %.0fms budget), %.2f MB/s allocated%n",
+				totalCpu / 1e6 / this.options.ticks(), totalCpu / 1e6 / this.options.ticks() / LoadSimulator.TICK_BUDGET_MILLIS * 100,
+				LoadSimulator.TICK_BUDGET_MILLIS, totalAllocated / seconds / (1024 * 1024));
+
+		List<HandlerStats> failed = new ArrayList<>(List.of(this.handlerStats));
+		failed.add(this.scheduledTasks);
+
+		for (HandlerStats stats : failed)
+		{
+			if (stats.firstError != null)
+			{
+				System.out.printf("%nFirst error of %s:%n", stats.name);
+				stats.firstError.printStackTrace(System.out);
+			}
+		}
+	}
+
+	private void print(HandlerStats stats, SchedulerStats.Snapshot tasks, double seconds)
+	{
+		System.out.printf(Locale.ROOT, "%-34s %10d %10.2f %9d %10.3f %9d %7d %9s %9s %10s%n",
+				stats.name, stats.calls, stats.cpuNanos / 1e6,
+				stats.calls > 0 ? stats.cpuNanos / stats.calls : 0,
+				stats.allocatedBytes / seconds / (1024 * 1024),
+				stats.calls > 0 ? stats.allocatedBytes / stats.calls : 0,
+				stats.errors,
+				tasks != null ? Long.toString(tasks.submitted()) : "-",
+				tasks != null ? Long.toString(tasks.executed()) : "-",
+				tasks != null ? String.format(Locale.ROOT, "%.1fus", tasks.averageExecutionNanos() / 1e3) : "-");
+	}
+
+	/**
+	 * How the players move, one step per tick.
+	 */
+	private enum MovementTrace
+	{
+		/**
+		 * Players stand still, only the handler ticks run.
+		 */
+		IDLE("idle")
+		{
+			@Override
+			MoveType step(Walker walker, Random random)
+			{
+				return null;
+			}
+		},
+
+		/**
+		 * Players keep their heading and turn now and then, bouncing off the world border.
+		 */
+		RANDOM_WALK("random-walk")
+		{
+			@Override
+			MoveType step(Walker walker, Random random)
+			{
+				if (random.nextInt(40) == 0)
+				{
+					walker.heading = random.nextDouble() * 2 * Math.PI;
+				}
+
+				double x = walker.x + Math.cos(walker.heading) * LoadSimulator.SPEED;
+				double z = walker.z + Math.sin(walker.heading) * LoadSimulator.SPEED;
+				if (x < 0 || x >= BenchmarkEnvironment.WORLD_SIZE || z < 0 || z >= BenchmarkEnvironment.WORLD_SIZE)
+				{
+					walker.heading += Math.PI;
+					return null;
+				}
+
+				walker.x = x;
+				walker.z = z;
+				return MoveType.MOVE;
+			}
+		},
+
+		/**
+		 * Players run in straight lines between random waypoints, crossing whole regions.
+		 */
+		COMMUTE("commute")
+		{
+			@Override
+			MoveType step(Walker walker, Random random)
+			{
+				double dx = walker.targetX - walker.x;
+				double dz = walker.targetZ - walker.z;
+
+				double distance = Math.sqrt(dx * dx + dz * dz);
+				if (distance <= LoadSimulator.SPEED)
+				{
+					walker.x = walker.targetX;
+					walker.z = walker.targetZ;
+
+					walker.targetX = random.nextDouble() * BenchmarkEnvironment.WORLD_SIZE;
+					walker.targetZ = random.nextDouble() * BenchmarkEnvironment.WORLD_SIZE;
+				}
+				else
+				{
+					walker.x += dx / distance * LoadSimulator.SPEED;
+					walker.z += dz / distance * LoadSimulator.SPEED;
+				}
+
+				return MoveType.MOVE;
+			}
+		},
+
+		/**
+		 * Players stand still and teleport somewhere random about every 10 seconds.
+		 */
+		TELEPORT("teleport")
+		{
+			@Override
+			MoveType step(Walker walker, Random random)
+			{
+				if (random.nextInt(10 * LoadSimulator.TICKS_PER_SECOND) != 0)
+				{
+					return null;
+				}
+
+				walker.x = random.nextDouble() * BenchmarkEnvironment.WORLD_SIZE;
+				walker.z = random.nextDouble() * BenchmarkEnvironment.WORLD_SIZE;
+				return MoveType.TELEPORT;
+			}
+		};
+
+		private final String name;
+
+		MovementTrace(String name)
+		{
+			this.name = name;
+		}
+
+		String getName()
+		{
+			return this.name;
+		}
+
+		/**
+		 * @return How the player moved, null if they didn't
+		 */
+		abstract MoveType step(Walker walker, Random random);
+
+		static MovementTrace byName(String name)
+		{
+			for (MovementTrace trace : MovementTrace.values())
+			{
+				if (trace.name.equalsIgnoreCase(name))
+				{
+					return trace;
+				}
+			}
+
+			throw new IllegalArgumentException("Unknown trace: " + name);
+		}
+	}
+
+	private record Options(int players, int regions, int ticks, int warmup, MovementTrace trace, long seed, boolean inline)
+	{
+		private static Options parse(String[] args)
+		{
+			int players = 200;
+			int regions = 128;
+			int ticks = 6000;
+			int warmup = 1200;
+			MovementTrace trace = MovementTrace.RANDOM_WALK;
+			long seed = 1L;
+			boolean inline = false;
+
+			for (int i = 0; i < args.length; i++)
+			{
+				String option = args[i];
+				if (option.equals("--inline"))
+				{
+					inline = true;
+					continue;
+				}
+
+				if (i + 1 >= args.length)
+				{
+					throw new IllegalArgumentException("Missing value of " + option);
+				}
+
+				String value = args[++i];
+				try
+				{
+					switch (option)
+					{
+						case "--players" -> players = Integer.parseInt(value);
+						case "--regions" -> regions = Integer.parseInt(value);
+						case "--ticks" -> ticks = Integer.parseInt(value);
+						case "--warmup" -> warmup = Integer.parseInt(value);
+						case "--trace" -> trace = MovementTrace.byName(value);
+						case "--seed" -> seed = Long.parseLong(value);
+						default -> throw new IllegalArgumentException("Unknown option: " + option);
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					throw new IllegalArgumentException("Not a number: " + value);
+				}
+			}
+
+			if (players < 1 || regions < 0 || ticks < 1 || warmup < 0)
+			{
+				throw new IllegalArgumentException("Players and ticks have to be positive, regions and warmup can't be negative");
+			}
+
+			return new Options(players, regions, ticks, warmup, trace, seed, inline);
+		}
+	}
+
+	private record Crossing(Walker walker, Location from, Location to, ApplicableRegionSet toSet, Set<ProtectedRegion> entered, Set<ProtectedRegion> exited, MoveType moveType)
+	{
+	}
+
+	private static class Walker
+	{
+		private final Stubs.LocalPlayerStub player;
+		private final List<Handler> handlers = new ArrayList<>();
+
+		private final int y;
+		private double x;
+		private double z;
+
+		private double heading;
+		private double targetX;
+		private double targetZ;
+
+		private BlockVector3 block;
+		private Location location;
+		private ApplicableRegionSet regions;
+
+		private Walker(Stubs.LocalPlayerStub player, BlockVector3 position)
+		{
+			this.player = player;
+
+			this.y = position.y();
+			this.x = position.x() + 0.5;
+			this.z = position.z() + 0.5;
+
+			this.targetX = this.x;
+			this.targetZ = this.z;
+		}
+
+		private void moveTo(BenchmarkEnvironment environment, BlockVector3 block, double x, double z)
+		{
+			this.block = block;
+			this.location = new Location(environment.getWorld(), x, this.y, z);
+			this.regions = environment.getApplicableRegions(block);
+
+			// Handlers read the position from the player as well
+			this.player.walkTo(this.location);
+		}
+	}
+
+	private static class HandlerStats
+	{
+		private final String name;
+
+		private long calls;
+		private long cpuNanos;
+		private long allocatedBytes;
+		private long errors;
+
+		private RuntimeException firstError;
+
+		private HandlerStats(String name)
+		{
+			this.name = name;
+		}
+
+		private void record(long calls, long cpuNanos, long allocatedBytes)
+		{
+			this.calls += calls;
+			this.cpuNanos += cpuNanos;
+			this.allocatedBytes += allocatedBytes;
+		}
+
+		private void recordError(RuntimeException e)
+		{
+			this.errors++;
+
+			if (this.firstError == null)
+			{
+				this.firstError = e;
+			}
+		}
+
+		private void reset()
+		{
+			this.calls = 0;
+			this.cpuNanos = 0;
+			this.allocatedBytes = 0;
+			this.errors = 0;
+		}
+	}
+}
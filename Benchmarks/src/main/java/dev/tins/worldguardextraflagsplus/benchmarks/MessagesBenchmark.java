@@ -0,0 +1,56 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.tins.worldguardextraflagsplus.Messages;
+
+/**
+ * Message lookup and rendering with the default messages.yml.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class MessagesBenchmark
+{
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		// Loads the default messages
+		new BenchmarkEnvironment(0, 1L);
+	}
+
+	@Benchmark
+	public String onePlaceholder()
+	{
+		return Messages.getMessage("permit-completely-blocked", "item", "TRIDENT");
+	}
+
+	@Benchmark
+	public String twoPlaceholders()
+	{
+		// Values change between calls like player levels do
+		return Messages.getMessage("entry-min-level-denied", "required", "10", "current", String.valueOf(this.next++ & 63));
+	}
+
+	@Benchmark
+	public String missingMessage()
+	{
+		return Messages.getMessage("no-such-message");
+	}
+}
@@ -0,0 +1,143 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.session.MoveType;
+
+import dev.tins.worldguardextraflagsplus.wg.handlers.BlockedEffectsFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.GiveEffectsFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PotionEffectsHandler;
+
+/**
+ * The give-effects and blocked-effects handlers, with the queued reconcile running inline.
+ * tick is the steady state of a player standing still, cross moves every player back and forth between two spots.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class PotionEffectsBenchmark
+{
+	// Power of two, players are picked round robin
+	private static final int PLAYERS = 256;
+
+	@Param({"0", "16", "128", "1024"})
+	public int regions;
+
+	private Walker[] walkers;
+
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment environment = new BenchmarkEnvironment(this.regions, 1L);
+
+		this.walkers = new Walker[PotionEffectsBenchmark.PLAYERS];
+		for (int i = 0; i < PotionEffectsBenchmark.PLAYERS; i++)
+		{
+			BlockVector3 home = environment.randomPosition();
+			BlockVector3 away = environment.randomPosition();
+
+			LocalPlayer player = environment.createPlayer(home);
+
+			Stubs.SessionStub session = environment.createSession();
+
+			PotionEffectsHandler potionEffectsHandler = PotionEffectsHandler.FACTORY().create(session);
+			session.register(potionEffectsHandler);
+
+			Walker walker = new Walker(player,
+					GiveEffectsFlagHandler.FACTORY().create(session), BlockedEffectsFlagHandler.FACTORY().create(session),
+					new Spot(environment.toLocation(home), environment.getApplicableRegions(home)),
+					new Spot(environment.toLocation(away), environment.getApplicableRegions(away)));
+
+			walker.giveEffects.initialize(player, walker.home.location(), walker.home.regions());
+			walker.blockedEffects.initialize(player, walker.home.location(), walker.home.regions());
+
+			this.walkers[i] = walker;
+		}
+	}
+
+	@Benchmark
+	public void tick()
+	{
+		Walker walker = this.walkers[this.next++ & (PotionEffectsBenchmark.PLAYERS - 1)];
+
+		walker.giveEffects.tick(walker.player, walker.current().regions());
+		walker.blockedEffects.tick(walker.player, walker.current().regions());
+	}
+
+	@Benchmark
+	public boolean cross()
+	{
+		Walker walker = this.walkers[this.next++ & (PotionEffectsBenchmark.PLAYERS - 1)];
+
+		Spot from = walker.current();
+		Spot to = walker.move();
+
+		Set<ProtectedRegion> entered = new HashSet<>(to.regions().getRegions());
+		entered.removeAll(from.regions().getRegions());
+
+		Set<ProtectedRegion> exited = new HashSet<>(from.regions().getRegions());
+		exited.removeAll(to.regions().getRegions());
+
+		return walker.giveEffects.onCrossBoundary(walker.player, from.location(), to.location(), to.regions(), entered, exited, MoveType.MOVE)
+				& walker.blockedEffects.onCrossBoundary(walker.player, from.location(), to.location(), to.regions(), entered, exited, MoveType.MOVE);
+	}
+
+	private record Spot(Location location, ApplicableRegionSet regions)
+	{
+	}
+
+	private static class Walker
+	{
+		private final LocalPlayer player;
+		private final GiveEffectsFlagHandler giveEffects;
+		private final BlockedEffectsFlagHandler blockedEffects;
+		private final Spot home;
+		private final Spot away;
+
+		private boolean atHome = true;
+
+		private Walker(LocalPlayer player, GiveEffectsFlagHandler giveEffects, BlockedEffectsFlagHandler blockedEffects, Spot home, Spot away)
+		{
+			this.player = player;
+			this.giveEffects = giveEffects;
+			this.blockedEffects = blockedEffects;
+			this.home = home;
+			this.away = away;
+		}
+
+		private Spot current()
+		{
+			return this.atHome ? this.home : this.away;
+		}
+
+		private Spot move()
+		{
+			this.atHome = !this.atHome;
+			return this.current();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.bukkit.entity.Entity;
+
+import com.tcoded.folialib.wrapper.task.WrappedTask;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+/**
+ * Stands in for the FoliaLib scheduler, its methods are forwarded from a generated ServerImplementation by {@link Stubs#forward}.
+ * Entity and next tick tasks either run right away or wait for the next {@link #runTick()},
+ * timers and async tasks never run. Not thread safe, the benchmarks and the simulator drive it from one thread.
+ */
+public class StubScheduler
+{
+	// Shared by every task, scheduling allocates nothing the plugin would not allocate on a real server
+	private static final CompletableFuture<Object> DONE = CompletableFuture.completedFuture(null);
+
+	private final Queue<Consumer<WrappedTask>> pending = new ArrayDeque<>();
+
+	// Run tasks on the calling thread instead of queueing them for the next tick
+	@Getter @Setter private boolean inline = true;
+
+	// Tasks that reached the scheduler, a mailbox dispatch counts once no matter how many mutations it runs
+	@Getter private long scheduled;
+
+	@RuntimeType
+	public CompletableFuture<?> runNextTick(Consumer<WrappedTask> task)
+	{
+		return this.schedule(task);
+	}
+
+	@RuntimeType
+	public CompletableFuture<?> runAtEntity(Entity entity, Consumer<WrappedTask> task)
+	{
+		return this.schedule(task);
+	}
+
+	@RuntimeType
+	public CompletableFuture<?> runAtEntityWithFallback(Entity entity, Consumer<WrappedTask> task, Runnable fallback)
+	{
+		// Entities never retire, the fallback is not run
+		return this.schedule(task);
+	}
+
+	/**
+	 * Runs the tasks queued before this tick, tasks they queue run on the next one.
+	 *
+	 * @return The number of tasks that ran
+	 */
+	public int runTick()
+	{
+		int count = this.pending.size();
+		for (int i = 0; i < count; i++)
+		{
+			this.pending.poll().accept(null);
+		}
+
+		return count;
+	}
+
+	public void resetScheduled()
+	{
+		this.scheduled = 0;
+	}
+
+	private CompletableFuture<?> schedule(Consumer<WrappedTask> task)
+	{
+		this.scheduled++;
+
+		if (this.inline)
+		{
+			task.accept(null);
+		}
+		else
+		{
+			this.pending.add(task);
+		}
+
+		return StubScheduler.DONE;
+	}
+}
@@ -0,0 +1,435 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.bukkit.BukkitPlayer;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.association.Association;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+import com.sk89q.worldguard.protection.regions.RegionQuery;
+import com.sk89q.worldguard.session.Session;
+import com.sk89q.worldguard.session.SessionManager;
+import com.sk89q.worldguard.session.handler.Handler;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.StubMethod;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * Hand-written stubs of what the measured code calls on Bukkit and WorldGuard objects.
+ * Mockito allocates on every call of a mock, which would drown the allocations of the plugin code in the GC profiler.
+ * A stub implements the methods the plugin calls as plain field reads, every other method is generated once per stub type
+ * and returns a default value without allocating, like an unstubbed mock would.
+ * Stubs are created without running any constructor, so they keep their state in fields set after creation.
+ */
+public final class Stubs
+{
+	private static final Objenesis OBJENESIS = new ObjenesisStd(true);
+
+	private static final Map<Class<?>, Class<?>> TYPES = new HashMap<>();
+
+	private Stubs()
+	{
+	}
+
+	/**
+	 * Creates an instance of one of the stubs below.
+	 */
+	public static synchronized <T> T create(Class<T> stubType)
+	{
+		Class<?> type = Stubs.TYPES.computeIfAbsent(stubType, key -> Stubs.load(new ByteBuddy()
+				.subclass(key)
+				.method(Stubs.isStubbed(key))
+				.intercept(StubMethod.INSTANCE)));
+
+		return stubType.cast(Stubs.OBJENESIS.newInstance(type));
+	}
+
+	/**
+	 * Implements the interface by forwarding the methods the target declares with the same name and parameters,
+	 * the other methods return a default value.
+	 */
+	public static <T> T forward(Class<T> type, Object target)
+	{
+		DynamicType.Builder<T> builder = new ByteBuddy()
+				.subclass(type)
+				.method(ElementMatchers.isAbstract())
+				.intercept(StubMethod.INSTANCE);
+
+		for (Method method : target.getClass().getDeclaredMethods())
+		{
+			if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()))
+			{
+				ElementMatcher.Junction<MethodDescription> matcher = ElementMatchers.<MethodDescription>named(method.getName()).and(ElementMatchers.<MethodDescription>takesArguments(method.getParameterTypes()));
+
+				builder = builder.method(matcher).intercept(MethodDelegation.withDefaultConfiguration().filter(matcher).to(target));
+			}
+		}
+
+		return type.cast(Stubs.OBJENESIS.newInstance(Stubs.load(builder)));
+	}
+
+	/**
+	 * Everything but the hand-written methods, the final ones and equals, hashCode and toString.
+	 */
+	private static ElementMatcher.Junction<MethodDescription> isStubbed(Class<?> stubType)
+	{
+		return ElementMatchers.<MethodDescription>isAbstract()
+				.or(ElementMatchers.not(ElementMatchers.<MethodDescription>isFinal())
+						.and(ElementMatchers.not(ElementMatchers.<MethodDescription>isDeclaredBy(stubType)))
+						.and(ElementMatchers.not(ElementMatchers.<MethodDescription>isEquals().or(ElementMatchers.isHashCode()).or(ElementMatchers.isToString()))));
+	}
+
+	private static Class<?> load(DynamicType.Builder<?> builder)
+	{
+		return builder.make().load(Stubs.class.getClassLoader()).getLoaded();
+	}
+
+	public abstract static class WorldStub implements org.bukkit.World
+	{
+		String name;
+		UUID uid;
+		int minHeight;
+		int maxHeight;
+
+		@Override
+		public String getName()
+		{
+			return this.name;
+		}
+
+		@Override
+		public UUID getUID()
+		{
+			return this.uid;
+		}
+
+		@Override
+		public int getMinHeight()
+		{
+			return this.minHeight;
+		}
+
+		@Override
+		public int getMaxHeight()
+		{
+			return this.maxHeight;
+		}
+	}
+
+	public abstract static class BlockStub implements Block
+	{
+		org.bukkit.World world;
+		int x;
+		int y;
+		int z;
+		Material type;
+
+		@Override
+		public org.bukkit.World getWorld()
+		{
+			return this.world;
+		}
+
+		@Override
+		public int getX()
+		{
+			return this.x;
+		}
+
+		@Override
+		public int getY()
+		{
+			return this.y;
+		}
+
+		@Override
+		public int getZ()
+		{
+			return this.z;
+		}
+
+		@Override
+		public Material getType()
+		{
+			return this.type;
+		}
+	}
+
+	public abstract static class PlayerStub implements Player
+	{
+		UUID uniqueId;
+		String name;
+		org.bukkit.World world;
+		int level;
+		Scoreboard scoreboard;
+
+		@Override
+		public UUID getUniqueId()
+		{
+			return this.uniqueId;
+		}
+
+		@Override
+		public String getName()
+		{
+			return this.name;
+		}
+
+		@Override
+		public org.bukkit.World getWorld()
+		{
+			return this.world;
+		}
+
+		@Override
+		public int getLevel()
+		{
+			return this.level;
+		}
+
+		@Override
+		public Scoreboard getScoreboard()
+		{
+			return this.scoreboard;
+		}
+
+		@Override
+		public boolean isOnline()
+		{
+			return true;
+		}
+
+		@Override
+		public Collection<PotionEffect> getActivePotionEffects()
+		{
+			return List.of();
+		}
+
+		@Override
+		public List<MetadataValue> getMetadata(String metadataKey)
+		{
+			return List.of();
+		}
+	}
+
+	/**
+	 * Collision teams, every team lookup finds the same team.
+	 */
+	public abstract static class ScoreboardStub implements Scoreboard
+	{
+		Team team;
+
+		@Override
+		public Team getTeam(String name)
+		{
+			return this.team;
+		}
+
+		@Override
+		public Team registerNewTeam(String name)
+		{
+			return this.team;
+		}
+	}
+
+	public abstract static class TeamStub implements Team
+	{
+	}
+
+	public abstract static class LocalPlayerStub extends BukkitPlayer
+	{
+		Player player;
+		UUID uniqueId;
+		String name;
+		World world;
+		Location location;
+
+		protected LocalPlayerStub()
+		{
+			super((WorldGuardPlugin) null, (Player) null);
+		}
+
+		@Override
+		public Player getPlayer()
+		{
+			return this.player;
+		}
+
+		@Override
+		public UUID getUniqueId()
+		{
+			return this.uniqueId;
+		}
+
+		@Override
+		public String getName()
+		{
+			return this.name;
+		}
+
+		@Override
+		public World getWorld()
+		{
+			return this.world;
+		}
+
+		@Override
+		public Location getLocation()
+		{
+			return this.location;
+		}
+
+		/**
+		 * Moves the player without teleporting, like walking does.
+		 */
+		public void walkTo(Location location)
+		{
+			this.location = location;
+		}
+
+		@Override
+		public Association getAssociation(List<ProtectedRegion> regions)
+		{
+			return Association.NON_MEMBER;
+		}
+	}
+
+	public abstract static class SessionStub extends Session
+	{
+		SessionManager manager;
+
+		private Map<Class<?>, Handler> handlers;
+
+		protected SessionStub()
+		{
+			super((SessionManager) null);
+		}
+
+		/**
+		 * Makes the handler available through {@link #getHandler(Class)}.
+		 */
+		public void register(Handler handler)
+		{
+			if (this.handlers == null)
+			{
+				this.handlers = new HashMap<>();
+			}
+
+			this.handlers.put(handler.getClass(), handler);
+		}
+
+		@Override
+		public <T extends Handler> T getHandler(Class<T> type)
+		{
+			return this.handlers != null ? type.cast(this.handlers.get(type)) : null;
+		}
+
+		@Override
+		public SessionManager getManager()
+		{
+			return this.manager;
+		}
+	}
+
+	/**
+	 * Nobody bypasses and only players with a registered session have one.
+	 */
+	public abstract static class SessionManagerStub implements SessionManager
+	{
+		private Map<LocalPlayer, Session> sessions;
+
+		public void register(LocalPlayer player, Session session)
+		{
+			if (this.sessions == null)
+			{
+				this.sessions = new IdentityHashMap<>();
+			}
+
+			this.sessions.put(player, session);
+		}
+
+		@Override
+		public Session get(LocalPlayer player)
+		{
+			return this.getIfPresent(player);
+		}
+
+		@Override
+		public Session getIfPresent(LocalPlayer player)
+		{
+			return this.sessions != null ? this.sessions.get(player) : null;
+		}
+	}
+
+	public abstract static class RegionQueryStub extends RegionQuery
+	{
+		RegionManager regionManager;
+
+		protected RegionQueryStub()
+		{
+			super(null);
+		}
+
+		@Override
+		public ApplicableRegionSet getApplicableRegions(Location location)
+		{
+			return this.regionManager.getApplicableRegions(location.toVector().toBlockPoint());
+		}
+	}
+
+	/**
+	 * A single region manager, whatever world it is asked for.
+	 */
+	public abstract static class RegionContainerStub extends RegionContainer
+	{
+		RegionManager regionManager;
+		List<RegionManager> loaded;
+		RegionQuery query;
+
+		@Override
+		public RegionManager get(World world)
+		{
+			return this.regionManager;
+		}
+
+		@Override
+		public List<RegionManager> getLoaded()
+		{
+			return this.loaded;
+		}
+
+		@Override
+		public RegionQuery createQuery()
+		{
+			return this.query;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package dev.tins.worldguardextraflagsplus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+
+import dev.tins.worldguardextraflagsplus.we.handlers.WorldEditFlagHandler;
+
+/**
+ * Per block cost of the worldedit flag, one operation is one block of a cubic edit.
+ * Every edit creates a new handler like a new edit session does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+EnableDynamicAgentLoading")
+public class WorldEditFlagHandlerBenchmark
+{
+	private static final int EDIT_SIZE = 32;
+	private static final int EDIT_VOLUME = WorldEditFlagHandlerBenchmark.EDIT_SIZE * WorldEditFlagHandlerBenchmark.EDIT_SIZE * WorldEditFlagHandlerBenchmark.EDIT_SIZE;
+
+	// Power of two, edits are picked round robin
+	private static final int EDITS = 64;
+
+	@Param({"0", "16", "128", "1024"})
+	public int regions;
+
+	private RegionManager regionManager;
+	private LocalPlayer player;
+	private Extent extent;
+
+	private BlockVector3[] origins;
+
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		BenchmarkEnvironment environment = new BenchmarkEnvironment(this.regions, 1L);
+
+		this.regionManager = environment.getRegionManager();
+		this.player = environment.createPlayer(environment.randomPosition());
+		this.extent = new AcceptingExtent();
+
+		this.origins = new BlockVector3[WorldEditFlagHandlerBenchmark.EDITS];
+		for (int i = 0; i < WorldEditFlagHandlerBenchmark.EDITS; i++)
+		{
+			this.origins[i] = environment.randomPosition();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(WorldEditFlagHandlerBenchmark.EDIT_VOLUME)
+	public int setBlock() throws WorldEditException
+	{
+		BlockVector3 origin = this.origins[this.next++ & (WorldEditFlagHandlerBenchmark.EDITS - 1)];
+
+		WorldEditFlagHandler handler = new WorldEditFlagHandler(null, this.extent, this.player, this.regionManager);
+
+		int placed = 0;
+		for (int x = 0; x < WorldEditFlagHandlerBenchmark.EDIT_SIZE; x++)
+		{
+			for (int z = 0; z < WorldEditFlagHandlerBenchmark.EDIT_SIZE; z++)
+			{
+				for (int y = 0; y < WorldEditFlagHandlerBenchmark.EDIT_SIZE; y++)
+				{
+					// The accepting extent never looks at the block
+					if (handler.setBlock(origin.add(x, y, z), null))
+					{
+						placed++;
+					}
+				}
+			}
+		}
+
+		return placed;
+	}
+
+	/**
+	 * Accepts every block without storing it, only the flag handler is measured.
+	 */
+	private static class AcceptingExtent extends NullExtent
+	{
+		@Override
+		public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 position, T block)
+		{
+			return true;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package dev.tins.worldguardextraflagsplus;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per player and per message cooldowns, built on every reload.
+ * Every message key gets a slot, a player's last send times are a single array of primitive timestamps
+ * updated with compare and set, so a busy message never holds back another one and sending never locks.
+ * Players whose cooldowns all expired are pruned, quitting players are removed right away.
+ */
+public final class MessageCooldowns
+{
+	// Shared slot of keys missing from messages.yml
+	private static final int UNKNOWN_SLOT = 0;
+
+	private final Map<String, Integer> slots = new HashMap<>();
+	private final long[] cooldownMillis;
+
+	private final Map<UUID, AtomicLongArray> players = new ConcurrentHashMap<>();
+
+	/**
+	 * @param keys Every message key
+	 * @param cooldownSeconds Cooldowns of single message keys
+	 * @param defaultCooldownSeconds Cooldown of the other message keys, 0 disables it
+	 */
+	public MessageCooldowns(Collection<String> keys, Map<String, Integer> cooldownSeconds, int defaultCooldownSeconds)
+	{
+		this.cooldownMillis = new long[keys.size() + 1];
+		this.cooldownMillis[MessageCooldowns.UNKNOWN_SLOT] = Math.max(0, defaultCooldownSeconds) * 1000L;
+
+		int slot = MessageCooldowns.UNKNOWN_SLOT + 1;
+		for (String key : keys)
+		{
+			this.slots.put(key, slot);
+			this.cooldownMillis[slot++] = Math.max(0, cooldownSeconds.getOrDefault(key, defaultCooldownSeconds)) * 1000L;
+		}
+	}
+
+	/**
+	 * Starts the cooldown of the message for the player unless it is still running.
+	 *
+	 * @return Whether the message may be sent
+	 */
+	public boolean tryAcquire(UUID playerId, String key)
+	{
+		int slot = this.slots.getOrDefault(key, MessageCooldowns.UNKNOWN_SLOT);
+
+		long cooldown = this.cooldownMillis[slot];
+		if (cooldown <= 0)
+		{
+			return true;
+		}
+
+		AtomicLongArray lastSent = this.players.get(playerId);
+		if (lastSent == null)
+		{
+			AtomicLongArray created = new AtomicLongArray(this.cooldownMillis.length);
+
+			lastSent = this.players.putIfAbsent(playerId, created);
+			if (lastSent == null)
+			{
+				lastSent = created;
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		while (true)
+		{
+			long last = lastSent.get(slot);
+			if (last != 0 && now - last < cooldown)
+			{
+				return false;
+			}
+
+			// Another thread sending the same message at the same time loses
+			if (lastSent.compareAndSet(slot, last, now))
+			{
+				return true;
+			}
+		}
+	}
+
+	public void remove(UUID playerId)
+	{
+		this.players.remove(playerId);
+	}
+
+	public void clear()
+	{
+		this.players.clear();
+	}
+
+	/**
+	 * Drops the players without a running cooldown.
+	 */
+	public void prune()
+	{
+		long now = System.currentTimeMillis();
+
+		this.players.values().removeIf(lastSent -> this.isExpired(lastSent, now));
+	}
+
+	private boolean isExpired(AtomicLongArray lastSent, long now)
+	{
+		for (int slot = 0; slot < this.cooldownMillis.length; slot++)
+		{
+			long last = lastSent.get(slot);
+			if (last != 0 && now - last < this.cooldownMillis[slot])
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
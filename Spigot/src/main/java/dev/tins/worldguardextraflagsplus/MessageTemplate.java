@@ -0,0 +1,162 @@
+package dev.tins.worldguardextraflagsplus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.ChatColor;
+
+/**
+ * A message from messages.yml compiled at reload.
+ * Color codes are translated once and the text is split into literal and placeholder segments,
+ * so rendering is a single pass that only translates placeholder values containing color codes.
+ */
+public final class MessageTemplate
+{
+	/**
+	 * Template of an empty message, which is never sent.
+	 */
+	public static final MessageTemplate DISABLED = new MessageTemplate(null, new String[0], new String[0]);
+
+	// The whole message when it has no placeholders
+	private final String constant;
+
+	// One literal more than placeholders, placeholder i sits between literal i and i + 1
+	private final String[] literals;
+	private final String[] placeholders;
+
+	private final int literalsLength;
+
+	private MessageTemplate(String constant, String[] literals, String[] placeholders)
+	{
+		this.constant = constant;
+		this.literals = literals;
+		this.placeholders = placeholders;
+
+		int literalsLength = 0;
+		for (String literal : literals)
+		{
+			literalsLength += literal.length();
+		}
+
+		this.literalsLength = literalsLength;
+	}
+
+	/**
+	 * Compiles a raw message, {name} is a placeholder.
+	 * Returns {@link #DISABLED} for null or blank messages.
+	 */
+	public static MessageTemplate compile(String message)
+	{
+		if (message == null || message.trim().isEmpty())
+		{
+			return MessageTemplate.DISABLED;
+		}
+
+		// Braces are no color codes, translating first leaves the placeholders intact
+		String translated = ChatColor.translateAlternateColorCodes('&', message);
+
+		List<String> literals = new ArrayList<>();
+		List<String> placeholders = new ArrayList<>();
+
+		int literalStart = 0;
+		int open = translated.indexOf('{');
+		while (open >= 0)
+		{
+			int close = translated.indexOf('}', open + 1);
+			if (close < 0)
+			{
+				break;
+			}
+
+			// A nested brace starts the placeholder again, like replacing {name} would match
+			int nested = translated.lastIndexOf('{', close);
+			if (nested > open)
+			{
+				open = nested;
+			}
+
+			if (close > open + 1)
+			{
+				literals.add(translated.substring(literalStart, open));
+				placeholders.add(translated.substring(open + 1, close));
+
+				literalStart = close + 1;
+			}
+
+			open = translated.indexOf('{', close + 1);
+		}
+
+		if (placeholders.isEmpty())
+		{
+			return new MessageTemplate(translated, new String[] { translated }, new String[0]);
+		}
+
+		literals.add(translated.substring(literalStart));
+
+		return new MessageTemplate(null, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+	}
+
+	public boolean isDisabled()
+	{
+		return this == MessageTemplate.DISABLED;
+	}
+
+	/**
+	 * Renders the message, placeholders without a value are kept as they are.
+	 *
+	 * @param replacements Pairs of placeholder name and value
+	 * @return The message or null if it is disabled
+	 */
+	public String render(String... replacements)
+	{
+		if (this.constant != null || this.isDisabled())
+		{
+			return this.constant;
+		}
+
+		String[] values = new String[this.placeholders.length];
+
+		int length = this.literalsLength;
+		for (int i = 0; i < values.length; i++)
+		{
+			String value = MessageTemplate.find(this.placeholders[i], replacements);
+			if (value != null && value.indexOf('&') >= 0)
+			{
+				value = ChatColor.translateAlternateColorCodes('&', value);
+			}
+
+			values[i] = value;
+			length += value != null ? value.length() : this.placeholders[i].length() + 2;
+		}
+
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < values.length; i++)
+		{
+			builder.append(this.literals[i]);
+
+			if (values[i] != null)
+			{
+				builder.append(values[i]);
+			}
+			else
+			{
+				builder.append('{').append(this.placeholders[i]).append('}');
+			}
+		}
+
+		return builder.append(this.literals[values.length]).toString();
+	}
+
+	private static String find(String placeholder, String[] replacements)
+	{
+		for (int i = 0; i + 1 < replacements.length; i += 2)
+		{
+			if (placeholder.equals(replacements[i]))
+			{
+				return replacements[i + 1];
+			}
+		}
+
+		return null;
+	}
+}
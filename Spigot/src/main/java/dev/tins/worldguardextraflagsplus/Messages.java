@@ -1,6 +1,6 @@
 package dev.tins.worldguardextraflagsplus;
 
-import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
@@ -10,17 +10,20 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 public class Messages
 {
 	private static JavaPlugin plugin;
 	private static FileConfiguration messages;
+	private static volatile Map<String, MessageTemplate> templates = Map.of();
 	private static File messagesFile;
 	private static int messageCooldownSeconds;
-	private static final ConcurrentHashMap<UUID, Long> messageCooldowns = new ConcurrentHashMap<>();
+	private static volatile MessageCooldowns messageCooldowns = new MessageCooldowns(Set.of(), Map.of(), 0);
 
 	public static void initialize(JavaPlugin plugin)
 	{
@@ -102,6 +105,8 @@ public class Messages
 				messages.setDefaults(defaultConfig);
 			}
 			
+			templates = compileTemplates(messages);
+			
 			// Load message cooldown (default: 3 seconds, 0 = no cooldown)
 			messageCooldownSeconds = messages.getInt("send-message-cooldown", 3);
 			if (messageCooldownSeconds < 0)
@@ -109,8 +114,8 @@ public class Messages
 				messageCooldownSeconds = 0;
 			}
 			
-			// Clear cooldowns when reloading messages
-			clearAllCooldowns();
+			// Replacing the cooldowns clears them when reloading messages
+			messageCooldowns = new MessageCooldowns(templates.keySet(), loadCooldowns(messages), messageCooldownSeconds);
 			
 			plugin.getLogger().info("Loaded messages from: " + messagesFile.getAbsolutePath());
 			plugin.getLogger().info("Message cooldown: " + (messageCooldownSeconds > 0 ? messageCooldownSeconds + " seconds" : "disabled"));
@@ -120,36 +125,83 @@ public class Messages
 			plugin.getLogger().log(Level.SEVERE, "Failed to load messages.yml", e);
 			// Fallback: use in-memory configuration
 			messages = new YamlConfiguration();
+			templates = Map.of();
 			messageCooldownSeconds = 3; // Default fallback
+			messageCooldowns = new MessageCooldowns(Set.of(), Map.of(), messageCooldownSeconds);
 		}
 	}
 
 	/**
-	 * Gets a message from the configuration and translates color codes.
-	 * Supports placeholders: {key} will be replaced with values
-	 * Returns null if message is empty (disabled)
+	 * Loads the per message cooldowns (message-cooldowns section), negative values disable the cooldown.
 	 */
-	public static String getMessage(String key, String... replacements)
+	private static Map<String, Integer> loadCooldowns(FileConfiguration messages)
 	{
-		String message = messages.getString(key, "&cMessage not found: " + key);
+		ConfigurationSection section = messages.getConfigurationSection("message-cooldowns");
+		if (section == null)
+		{
+			return Map.of();
+		}
 		
-		// If message is empty string, return null (message disabled)
-		if (message == null || message.trim().isEmpty())
+		Map<String, Integer> cooldowns = new HashMap<>();
+		for (String key : section.getKeys(false))
 		{
-			return null;
+			if (section.isInt(key))
+			{
+				cooldowns.put(key, Math.max(0, section.getInt(key)));
+			}
+			else
+			{
+				plugin.getLogger().warning("Ignoring message cooldown of " + key + ", it is not a number of seconds");
+			}
 		}
 		
-		// Replace placeholders
-		for (int i = 0; i < replacements.length; i += 2)
+		return cooldowns;
+	}
+
+	/**
+	 * Compiles every message, including the ones only present in the defaults.
+	 */
+	private static Map<String, MessageTemplate> compileTemplates(FileConfiguration messages)
+	{
+		Set<String> keys = new LinkedHashSet<>(messages.getKeys(true));
+		if (messages.getDefaults() != null)
+		{
+			keys.addAll(messages.getDefaults().getKeys(true));
+		}
+		
+		Map<String, MessageTemplate> templates = new HashMap<>();
+		for (String key : keys)
 		{
-			if (i + 1 < replacements.length)
+			if (messages.get(key) instanceof String message)
 			{
-				message = message.replace("{" + replacements[i] + "}", replacements[i + 1]);
+				templates.put(key, MessageTemplate.compile(message));
 			}
 		}
 		
-		// Translate color codes
-		return ChatColor.translateAlternateColorCodes('&', message);
+		return Map.copyOf(templates);
+	}
+
+	/**
+	 * Gets a message from the configuration and translates color codes.
+	 * Supports placeholders: {key} will be replaced with values
+	 * Returns null if message is empty (disabled)
+	 * Messages are compiled on reload, see {@link MessageTemplate}.
+	 */
+	public static String getMessage(String key, String... replacements)
+	{
+		return getTemplate(key).render(replacements);
+	}
+
+	private static MessageTemplate getTemplate(String key)
+	{
+		MessageTemplate template = templates.get(key);
+		if (template == null)
+		{
+			// Unknown keys are a configuration mistake, not worth caching
+			template = MessageTemplate.compile("&cMessage not found: " + key);
+		}
+		
+		return template;
 	}
 
 	/**
@@ -164,6 +216,7 @@ public class Messages
 	/**
 	 * Sends a message to a player with cooldown check.
 	 * If cooldown is enabled and not expired, the message won't be sent.
+	 * Every message has its own cooldown, see message-cooldowns in messages.yml.
 	 * Returns true if message was sent, false if blocked by cooldown.
 	 */
 	public static boolean sendMessageWithCooldown(Player player, String key, String... replacements)
@@ -174,36 +227,20 @@ public class Messages
 		}
 
 		// Get message
-		String message = getMessage(key, replacements);
-		if (message == null)
+		MessageTemplate template = getTemplate(key);
+		if (template.isDisabled())
 		{
 			return false; // Message disabled
 		}
 
-		// Check cooldown if enabled
-		if (messageCooldownSeconds > 0)
+		// Check cooldown, rendering is skipped while it runs
+		if (!messageCooldowns.tryAcquire(player.getUniqueId(), key))
 		{
-			UUID playerId = player.getUniqueId();
-			long currentTime = System.currentTimeMillis();
-			long cooldownMillis = messageCooldownSeconds * 1000L;
-
-			Long lastMessageTime = messageCooldowns.get(playerId);
-			if (lastMessageTime != null)
-			{
-				long timeSinceLastMessage = currentTime - lastMessageTime;
-				if (timeSinceLastMessage < cooldownMillis)
-				{
-					// Still in cooldown, don't send message
-					return false;
-				}
-			}
-
-			// Update cooldown timestamp
-			messageCooldowns.put(playerId, currentTime);
+			return false;
 		}
 
 		// Send message
-		player.sendMessage(message);
+		player.sendMessage(template.render(replacements));
 		return true;
 	}
 
@@ -219,6 +256,14 @@ public class Messages
 		}
 	}
 
+	/**
+	 * Drops the cooldowns of players without a running one, so players who left don't pile up.
+	 */
+	public static void pruneCooldowns()
+	{
+		messageCooldowns.prune();
+	}
+
 	/**
 	 * Clears all message cooldowns.
 	 * Useful when reloading messages.
@@ -237,5 +282,13 @@ public class Messages
 	{
 		return messageCooldownSeconds;
 	}
+
+	/**
+	 * Gets the placeholder cache settings, falling back to the defaults from the plugin resources.
+	 */
+	public static ConfigurationSection getPlaceholderCacheSection()
+	{
+		return messages.getConfigurationSection("placeholder-cache");
+	}
 }
 
@@ -4,13 +4,8 @@ import java.lang.reflect.Field;
 import java.util.HashSet;
 import java.util.Set;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.flags.StateFlag;
 import com.sk89q.worldguard.protection.flags.registry.FlagRegistry;
-import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 import com.sk89q.worldguard.session.SessionManager;
 import dev.tins.worldguardextraflagsplus.listeners.*;
@@ -27,7 +22,13 @@ import lombok.Getter;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
 import dev.tins.worldguardextraflagsplus.protocollib.ProtocolLibHelper;
 import dev.tins.worldguardextraflagsplus.updater.UpdateChecker;
+import dev.tins.worldguardextraflagsplus.wg.ChunkTicketManager;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
+import dev.tins.worldguardextraflagsplus.wg.RegionChangeTracker;
 import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderBridge;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderCache;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
@@ -43,6 +44,15 @@ public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
 	@Getter private RegionContainer regionContainer;
 	@Getter private SessionManager sessionManager;
 
+	@Getter private LocalPlayerCache localPlayerCache;
+
+	@Getter private RegionChangeTracker regionChangeTracker;
+	@Getter private FlagSnapshotCache flagSnapshotCache;
+	@Getter private ChunkTicketManager chunkTicketManager;
+
+	@Getter private PlaceholderBridge placeholderBridge;
+	@Getter private PlaceholderCache placeholderCache;
+
 	@Getter private ProtocolLibHelper protocolLibHelper;
 	
 	public WorldGuardExtraFlagsPlusPlugin()
@@ -126,10 +136,35 @@ public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
 		Messages.initialize(this);
 		
 		WorldGuardUtils.initializeScheduler(this);
+		WorldGuardUtils.registerMessageSender(Messages::sendMessageWithCooldown);
 		
 		this.regionContainer = this.worldGuard.getPlatform().getRegionContainer();
 		this.sessionManager = this.worldGuard.getPlatform().getSessionManager();
 
+		// Players already online after a plugin reload never join again
+		this.localPlayerCache = new LocalPlayerCache(this.worldGuardPlugin);
+		this.getServer().getOnlinePlayers().forEach(this.localPlayerCache::add);
+
+		this.flagSnapshotCache = new FlagSnapshotCache(this.regionContainer, WorldGuardExtraFlagsPlusPlugin.FLAGS);
+
+		this.regionChangeTracker = new RegionChangeTracker(this.regionContainer);
+		this.regionChangeTracker.addListener(this.flagSnapshotCache);
+
+		this.chunkTicketManager = new ChunkTicketManager(this, this.regionContainer);
+		this.regionChangeTracker.addListener(this.chunkTicketManager);
+		WorldGuardUtils.getScheduler().runTimerAsync(this.regionChangeTracker::poll, 20L, 20L);
+
+		this.placeholderBridge = new PlaceholderBridge(this);
+		this.getServer().getPluginManager().registerEvents(this.placeholderBridge, this);
+
+		this.placeholderCache = new PlaceholderCache(this.placeholderBridge);
+		this.placeholderCache.load(Messages.getPlaceholderCacheSection());
+		WorldGuardUtils.getScheduler().runTimerAsync(this.placeholderCache::sweep, 200L, 200L);
+		WorldGuardUtils.getScheduler().runTimerAsync(Messages::pruneCooldowns, 1200L, 1200L);
+
+		// Registered first, the other handlers check bypass through it
+		this.sessionManager.registerHandler(BypassHandler.FACTORY(), null);
+
 		this.sessionManager.registerHandler(TeleportOnEntryFlagHandler.FACTORY(plugin), null);
 		this.sessionManager.registerHandler(TeleportOnExitFlagHandler.FACTORY(plugin), null);
 
@@ -139,6 +174,7 @@ public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
 		this.sessionManager.registerHandler(GlideFlagHandler.FACTORY(), null);
 		this.sessionManager.registerHandler(GodmodeFlagHandler.FACTORY(), null);
 		this.sessionManager.registerHandler(PlaySoundsFlagHandler.FACTORY(plugin), null);
+		this.sessionManager.registerHandler(PotionEffectsHandler.FACTORY(), null);
 		this.sessionManager.registerHandler(BlockedEffectsFlagHandler.FACTORY(), null);
 		this.sessionManager.registerHandler(GiveEffectsFlagHandler.FACTORY(), null);
 
@@ -146,17 +182,18 @@ public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
 		this.sessionManager.registerHandler(CommandOnExitFlagHandler.FACTORY(), null);
 		this.sessionManager.registerHandler(ConsoleCommandOnEntryFlagHandler.FACTORY(), null);
 		this.sessionManager.registerHandler(ConsoleCommandOnExitFlagHandler.FACTORY(), null);
-		this.sessionManager.registerHandler(EntryLevelFlagHandler.FACTORY(plugin), null);
+		this.sessionManager.registerHandler(EntryLevelFlagHandler.FACTORY(this.placeholderCache), null);
 		this.sessionManager.registerHandler(CollisionFlagHandler.FACTORY(), null);
+		this.sessionManager.registerHandler(PermitCompletelyFlagHandler.FACTORY(), null);
 
-		this.getServer().getPluginManager().registerEvents(new PlayerListener(this, this.worldGuardPlugin, this.regionContainer, this.sessionManager), this);
-		this.getServer().getPluginManager().registerEvents(new BlockListener(this.worldGuardPlugin, this.regionContainer, this.sessionManager), this);
-		this.getServer().getPluginManager().registerEvents(new WorldListener(this, this.regionContainer), this);
-		this.getServer().getPluginManager().registerEvents(new EntityListener(this.worldGuardPlugin, this.regionContainer, this.sessionManager), this);
-		this.getServer().getPluginManager().registerEvents(new VillagerTradeListener(this.worldGuardPlugin, this.regionContainer, this.sessionManager), this);
+		this.getServer().getPluginManager().registerEvents(new PlayerListener(this, this.localPlayerCache, this.sessionManager, this.flagSnapshotCache, this.placeholderCache), this);
+		this.getServer().getPluginManager().registerEvents(new BlockListener(this.localPlayerCache, this.sessionManager, this.flagSnapshotCache), this);
+		this.getServer().getPluginManager().registerEvents(new WorldListener(this.chunkTicketManager), this);
+		this.getServer().getPluginManager().registerEvents(new EntityListener(this.localPlayerCache, this.sessionManager, this.flagSnapshotCache), this);
+		this.getServer().getPluginManager().registerEvents(new VillagerTradeListener(this.localPlayerCache, this.sessionManager, this.flagSnapshotCache), this);
 		this.getServer().getPluginManager().registerEvents(new dev.tins.worldguardextraflagsplus.listeners.WorldGuardReloadListener(this), this);
 
-		this.worldEditPlugin.getWorldEdit().getEventBus().register(new WorldEditListener(this.worldGuardPlugin, this.regionContainer, this.sessionManager));
+		this.worldEditPlugin.getWorldEdit().getEventBus().register(new WorldEditListener(this.localPlayerCache, this.regionContainer, this.sessionManager));
 		
 		if (this.protocolLibHelper != null)
 		{
@@ -166,17 +203,17 @@ public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
 			}
 			catch (Throwable ignore)
 			{
-				this.getServer().getPluginManager().registerEvents(new EntityPotionEffectEventListener(this.worldGuardPlugin, this.sessionManager), this);
+				this.getServer().getPluginManager().registerEvents(new EntityPotionEffectEventListener(this.localPlayerCache, this.sessionManager), this);
 			}
 		}
 		else
 		{
-			this.getServer().getPluginManager().registerEvents(new EntityPotionEffectEventListener(this.worldGuardPlugin, this.sessionManager), this);
+			this.getServer().getPluginManager().registerEvents(new EntityPotionEffectEventListener(this.localPlayerCache, this.sessionManager), this);
 		}
 		
 		for(World world : this.getServer().getWorlds())
 		{
-			this.doUnloadChunkFlagCheck(world);
+			this.chunkTicketManager.load(world);
 		}
 		
 		this.setupMetrics();
@@ -189,34 +226,26 @@ public class WorldGuardExtraFlagsPlusPlugin extends JavaPlugin
 		this.getCommand("wgefp").setTabCompleter(new dev.tins.worldguardextraflagsplus.commands.ReloadCommand(this));
 	}
 
-	public void doUnloadChunkFlagCheck(org.bukkit.World world)
+	/**
+	 * Reloads messages.yml and drops everything cached from it or from WorldGuard.
+	 * Used by /wgefp reload and after WorldGuard reloads, has to run on the main thread.
+	 */
+	public void reloadCaches()
 	{
-		RegionManager regionManager = this.regionContainer.get(BukkitAdapter.adapt(world));
-		if (regionManager == null)
-		{
-			return;
-		}
+		Messages.reloadMessages();
 
-		for (ProtectedRegion region : regionManager.getRegions().values())
-		{
-			if (region.getFlag(Flags.CHUNK_UNLOAD) == StateFlag.State.DENY)
-			{
-				this.getLogger().info("Loading chunks for region " + region.getId() + " located in " + world.getName() + " due to chunk-unload flag being deny");
-
-				BlockVector3 min = region.getMinimumPoint();
-				BlockVector3 max = region.getMaximumPoint();
-
-				for(int x = min.getBlockX() >> 4; x <= max.getBlockX() >> 4; x++)
-				{
-					for(int z = min.getBlockZ() >> 4; z <= max.getBlockZ() >> 4; z++)
-					{
-						world.getChunkAt(x, z).addPluginChunkTicket(this);
-					}
-				}
-			}
-		}
+		this.placeholderCache.load(Messages.getPlaceholderCacheSection());
+
+		// Recompile flag snapshots on next use
+		this.flagSnapshotCache.invalidateAll();
+
+		// Check bypass again, the reload may come with permission changes
+		BypassHandler.invalidateAll();
+
+		// Region managers may have been replaced, unchanged regions keep their tickets
+		this.chunkTicketManager.reload();
 	}
-	
+
 	private void setupMetrics()
 	{
 		final int bStatsPluginId = 27821;
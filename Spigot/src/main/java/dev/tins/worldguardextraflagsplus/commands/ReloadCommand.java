@@ -1,7 +1,9 @@
 package dev.tins.worldguardextraflagsplus.commands;
 
-import dev.tins.worldguardextraflagsplus.Messages;
 import dev.tins.worldguardextraflagsplus.WorldGuardExtraFlagsPlusPlugin;
+import dev.tins.worldguardextraflagsplus.wg.SchedulerStats;
+import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderCache;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -11,6 +13,7 @@ import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 public class ReloadCommand implements CommandExecutor, TabCompleter
 {
@@ -26,14 +29,26 @@ public class ReloadCommand implements CommandExecutor, TabCompleter
 	{
 		if (args.length == 0)
 		{
-			sender.sendMessage("§eUsage: /" + label + " reload");
+			sender.sendMessage("§eUsage: /" + label + " <reload|stats>");
+			return true;
+		}
+
+		if (args[0].equalsIgnoreCase("stats"))
+		{
+			if (!sender.hasPermission("worldguardextraflagsplus.reload"))
+			{
+				sender.sendMessage("§cYou don't have permission to use this command.");
+				return true;
+			}
+
+			this.sendStats(sender, args.length >= 2 && args[1].equalsIgnoreCase("reset"));
 			return true;
 		}
 
 		if (!args[0].equalsIgnoreCase("reload"))
 		{
 			sender.sendMessage("§cUnknown subcommand: " + args[0]);
-			sender.sendMessage("§eUsage: /" + label + " reload");
+			sender.sendMessage("§eUsage: /" + label + " <reload|stats>");
 			return true;
 		}
 
@@ -45,8 +60,8 @@ public class ReloadCommand implements CommandExecutor, TabCompleter
 
 		try
 		{
-			// Reload messages
-			Messages.reloadMessages();
+			// Reload messages and every cache depending on them or on WorldGuard
+			plugin.reloadCaches();
 			
 			sender.sendMessage("§aMessages reloaded successfully!");
 			plugin.getLogger().info("Messages reloaded by " + sender.getName());
@@ -61,19 +76,64 @@ public class ReloadCommand implements CommandExecutor, TabCompleter
 		return true;
 	}
 
+	private void sendStats(CommandSender sender, boolean reset)
+	{
+		SchedulerStats schedulerStats = WorldGuardUtils.getScheduler().getStats();
+		if (reset)
+		{
+			schedulerStats.reset();
+			sender.sendMessage("§aScheduler stats reset.");
+			return;
+		}
+
+		List<SchedulerStats.Snapshot> snapshots = schedulerStats.snapshot();
+		if (snapshots.isEmpty())
+		{
+			sender.sendMessage("§eScheduler tasks: §7none recorded yet");
+		}
+		else
+		{
+			sender.sendMessage("§eScheduler tasks §7(submitted/executed, latency avg/p99, execution avg/p99):");
+			for (SchedulerStats.Snapshot snapshot : snapshots)
+			{
+				sender.sendMessage("§f" + snapshot.owner() + " §7- §f" + snapshot.submitted() + "§7/§f" + snapshot.executed()
+						+ " §7latency §f" + ReloadCommand.formatMillis(snapshot.averageLatencyNanos()) + "§7/§f" + ReloadCommand.formatMillis(snapshot.p99LatencyNanos())
+						+ " §7exec §f" + ReloadCommand.formatMillis(snapshot.averageExecutionNanos()) + "§7/§f" + ReloadCommand.formatMillis(snapshot.p99ExecutionNanos()));
+			}
+		}
+
+		PlaceholderCache placeholderCache = plugin.getPlaceholderCache();
+		sender.sendMessage("§ePlaceholder cache: §f" + placeholderCache.size() + " §7entries, §f" + placeholderCache.getHits() + " §7hits, §f" + placeholderCache.getMisses() + " §7misses, §f"
+				+ placeholderCache.getEvictions() + " §7evicted, §f" + placeholderCache.getExpirations() + " §7expired");
+	}
+
+	private static String formatMillis(long nanos)
+	{
+		return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000D);
+	}
+
 	@Override
 	public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args)
 	{
 		if (args.length == 1)
 		{
-			// Tab complete for "reload"
+			// Tab complete for "reload" and "stats"
 			List<String> completions = new ArrayList<>();
 			if ("reload".startsWith(args[0].toLowerCase()))
 			{
 				completions.add("reload");
 			}
+			if ("stats".startsWith(args[0].toLowerCase()))
+			{
+				completions.add("stats");
+			}
 			return completions;
 		}
+
+		if (args.length == 2 && args[0].equalsIgnoreCase("stats") && "reset".startsWith(args[1].toLowerCase()))
+		{
+			return Collections.singletonList("reset");
+		}
 		
 		return Collections.emptyList();
 	}
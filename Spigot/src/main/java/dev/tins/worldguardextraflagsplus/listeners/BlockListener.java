@@ -4,11 +4,9 @@ import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.bukkit.event.block.BreakBlockEvent;
 import com.sk89q.worldguard.bukkit.event.block.PlaceBlockEvent;
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
+import com.sk89q.worldguard.protection.flags.SetFlag;
 import com.sk89q.worldguard.session.SessionManager;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -24,15 +22,22 @@ import com.sk89q.worldguard.protection.flags.StateFlag.State;
 
 import lombok.RequiredArgsConstructor;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshot;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BypassHandler;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @RequiredArgsConstructor
 public class BlockListener implements Listener
 {
-	private final WorldGuardPlugin worldGuardPlugin;
-	private final RegionContainer regionContainer;
+	private final LocalPlayerCache localPlayerCache;
 	private final SessionManager sessionManager;
+	private final FlagSnapshotCache flagSnapshotCache;
 	
 	@EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = false)
 	public void onBlockPlaceEvent(PlaceBlockEvent event)
@@ -45,39 +50,19 @@ public class BlockListener implements Listener
 			return;
 		}
 		
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-		if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+		if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
 		{
 			return;
 		}
 		
-		for (Block block : event.getBlocks())
+		Event.Result result = this.resolveBlocks(localPlayer, event.getBlocks(), event.getEffectiveMaterial(), Flags.ALLOW_BLOCK_PLACE, Flags.DENY_BLOCK_PLACE);
+		if (result != null)
+		{
+			event.setResult(result);
+		}
+		else if (!event.getBlocks().isEmpty())
 		{
-			Material type = block.getType();
-			if (type == Material.AIR)
-			{
-				type = event.getEffectiveMaterial();
-			}
-			
-			Location location = BukkitAdapter.adapt(block.getLocation());
-			ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(location);
-			
-			// Check allow-block-place first
-			Set<Material> allowSet = regions.queryValue(localPlayer, Flags.ALLOW_BLOCK_PLACE);
-			if (allowSet != null && !allowSet.isEmpty() && allowSet.contains(type))
-			{
-				event.setResult(Event.Result.ALLOW);
-				continue;
-			}
-			
-			// Check deny-block-place
-			Set<Material> denySet = regions.queryValue(localPlayer, Flags.DENY_BLOCK_PLACE);
-			if (denySet != null && !denySet.isEmpty() && denySet.contains(type))
-			{
-				event.setResult(Event.Result.DENY);
-				return;
-			}
-			
 			// Restore original result if no flags matched
 			event.setResult(originalResult);
 		}
@@ -94,36 +79,107 @@ public class BlockListener implements Listener
 			return;
 		}
 		
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-		if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+		if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
 		{
 			return;
 		}
 		
-		for (Block block : event.getBlocks())
+		Event.Result result = this.resolveBlocks(localPlayer, event.getBlocks(), null, Flags.ALLOW_BLOCK_BREAK, Flags.DENY_BLOCK_BREAK);
+		if (result != null)
+		{
+			event.setResult(result);
+		}
+		else if (!event.getBlocks().isEmpty())
+		{
+			// Restore original result if no flags matched
+			event.setResult(originalResult);
+		}
+	}
+
+	/**
+	 * Decides a whole multi-block event at once.
+	 * Blocks sharing a region overlap share one snapshot, so the allow/deny sets are resolved
+	 * once per overlap instead of once per block. Same outcome as checking every block in order:
+	 * any denied block denies the event, otherwise the last block decides between ALLOW and
+	 * the original result (returned as null).
+	 */
+	private Event.Result resolveBlocks(LocalPlayer localPlayer, List<Block> blocks, Material effectiveMaterial, SetFlag<Material> allowFlag, SetFlag<Material> denyFlag)
+	{
+		Event.Result result = null;
+
+		World world = null;
+		FlagSnapshot lastSnapshot = null;
+		MaterialRules lastRules = null;
+		Map<FlagSnapshot, MaterialRules> resolved = null;
+
+		for (Block block : blocks)
 		{
 			Material type = block.getType();
-			Location location = BukkitAdapter.adapt(block.getLocation());
-			ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(location);
-			
-			// Check allow-block-break first
-			Set<Material> allowSet = regions.queryValue(localPlayer, Flags.ALLOW_BLOCK_BREAK);
-			if (allowSet != null && !allowSet.isEmpty() && allowSet.contains(type))
+			if (type == Material.AIR && effectiveMaterial != null)
+			{
+				type = effectiveMaterial;
+			}
+
+			if (world == null)
+			{
+				world = BukkitAdapter.adapt(block.getWorld());
+			}
+
+			FlagSnapshot snapshot = this.flagSnapshotCache.getSnapshot(world, block.getX(), block.getY(), block.getZ());
+			if (snapshot != lastSnapshot)
 			{
-				event.setResult(Event.Result.ALLOW);
+				// Single overlap events (the common case) never allocate the lookup map
+				if (lastSnapshot != null && resolved == null)
+				{
+					resolved = new IdentityHashMap<>();
+					resolved.put(lastSnapshot, lastRules);
+				}
+
+				MaterialRules rules = resolved != null ? resolved.get(snapshot) : null;
+				if (rules == null)
+				{
+					rules = new MaterialRules(snapshot.queryValue(localPlayer, allowFlag), snapshot.queryValue(localPlayer, denyFlag));
+
+					if (resolved != null)
+					{
+						resolved.put(snapshot, rules);
+					}
+				}
+
+				lastSnapshot = snapshot;
+				lastRules = rules;
+			}
+
+			// Check allow first
+			if (lastRules.allows(type))
+			{
+				result = Event.Result.ALLOW;
 				continue;
 			}
-			
-			// Check deny-block-break
-			Set<Material> denySet = regions.queryValue(localPlayer, Flags.DENY_BLOCK_BREAK);
-			if (denySet != null && !denySet.isEmpty() && denySet.contains(type))
+
+			// Check deny
+			if (lastRules.denies(type))
 			{
-				event.setResult(Event.Result.DENY);
-				return;
+				return Event.Result.DENY;
 			}
-			
-			// Restore original result if no flags matched
-			event.setResult(originalResult);
+
+			result = null;
+		}
+
+		return result;
+	}
+
+	private record MaterialRules(Set<Material> allowSet, Set<Material> denySet)
+	{
+		boolean allows(Material type)
+		{
+			return this.allowSet != null && !this.allowSet.isEmpty() && this.allowSet.contains(type);
+		}
+
+		boolean denies(Material type)
+		{
+			return this.denySet != null && !this.denySet.isEmpty() && this.denySet.contains(type);
 		}
 	}
 
@@ -138,8 +194,8 @@ public class BlockListener implements Listener
 			LocalPlayer localPlayer;
 			if (event.getEntity() instanceof Player player)
 			{
-				localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-				if (this.sessionManager.hasBypass(localPlayer, (World) location.getExtent()))
+				localPlayer = this.localPlayerCache.wrapPlayer(player);
+				if (BypassHandler.hasBypass(this.sessionManager, localPlayer, (World) location.getExtent()))
 				{
 					return;
 				}
@@ -149,7 +205,7 @@ public class BlockListener implements Listener
 				localPlayer = null;
 			}
 
-			if (this.regionContainer.createQuery().queryValue(location, localPlayer, Flags.FROSTWALKER) == State.DENY)
+			if (this.flagSnapshotCache.getSnapshot(location).queryState(localPlayer, Flags.FROSTWALKER) == State.DENY)
 			{
 				event.setCancelled(true);
 			}
@@ -2,10 +2,9 @@ package dev.tins.worldguardextraflagsplus.listeners;
 
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import com.sk89q.worldguard.session.SessionManager;
 import dev.tins.worldguardextraflagsplus.flags.helpers.ForcedStateFlag;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
 import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
 import org.bukkit.block.BlockState;
 import org.bukkit.entity.Entity;
@@ -15,6 +14,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityPotionEffectEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerRiptideEvent;
@@ -25,25 +25,26 @@ import org.bukkit.event.entity.EntityToggleGlideEvent;
 import org.bukkit.event.entity.EntityResurrectEvent;
 import org.bukkit.event.world.PortalCreateEvent;
 
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
 import com.sk89q.worldguard.protection.flags.StateFlag.State;
+import com.sk89q.worldguard.session.Session;
 
 import lombok.RequiredArgsConstructor;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
 import dev.tins.worldguardextraflagsplus.flags.helpers.BlockableItemFlag;
 import dev.tins.worldguardextraflagsplus.Messages;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BypassHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PermitCompletelyFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.handlers.PotionEffectsHandler;
 
 import java.util.Set;
 
 @RequiredArgsConstructor
 public class EntityListener implements Listener
 {
-	private final WorldGuardPlugin worldGuardPlugin;
-	private final RegionContainer regionContainer;
+	private final LocalPlayerCache localPlayerCache;
 	private final SessionManager sessionManager;
-
-	// Get blockable items list from the flag helper (single source of truth)
-	private static final Set<String> BLOCKABLE_ITEMS = BlockableItemFlag.getBlockableItems();
+	private final FlagSnapshotCache flagSnapshotCache;
 
 	@EventHandler(ignoreCancelled = true)
 	public void onPortalCreateEvent(PortalCreateEvent event)
@@ -51,8 +52,8 @@ public class EntityListener implements Listener
 		LocalPlayer localPlayer;
 		if (event.getEntity() instanceof Player player)
 		{
-			localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-			if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+			localPlayer = this.localPlayerCache.wrapPlayer(player);
+			if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
 			{
 				return;
 			}
@@ -64,7 +65,7 @@ public class EntityListener implements Listener
 
 		for (BlockState block : event.getBlocks())
 		{
-			if (this.regionContainer.createQuery().queryState(BukkitAdapter.adapt(block.getLocation()), localPlayer, Flags.NETHER_PORTALS) == State.DENY)
+			if (this.flagSnapshotCache.getSnapshot(BukkitAdapter.adapt(block.getLocation())).queryState(localPlayer, Flags.NETHER_PORTALS) == State.DENY)
 			{
 				event.setCancelled(true);
 				break;
@@ -74,31 +75,22 @@ public class EntityListener implements Listener
 
     private boolean isBlocked(LocalPlayer localPlayer, Material material)
     {
-        String name = material.name();
-        
         // Early exit: only check flag if item is in our hardcoded blockable list
-        if (!BLOCKABLE_ITEMS.contains(name))
+        if (!BlockableItemFlag.isBlockable(material))
         {
             return false;
         }
         
-        // Check if flag is set in region (inheritance handled automatically by WorldGuard)
-        ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(localPlayer.getLocation());
-        java.util.Set<String> set = regions.queryValue(localPlayer, Flags.PERMIT_COMPLETELY);
-        if (set == null || set.isEmpty())
+        // The session handler keeps the flag value of the player's regions, updated when they cross a boundary
+        Session session = this.sessionManager.getIfPresent(localPlayer);
+        if (session != null)
         {
-            return false;
-        }
-        
-        // Case-insensitive check against flag set
-        for (String item : set)
-        {
-            if (item != null && item.equalsIgnoreCase(name))
-            {
-                return true;
-            }
+            return session.getHandler(PermitCompletelyFlagHandler.class).isBlocked(material);
         }
-        return false;
+
+        // NPCs have no session, query their regions instead of creating one for them
+        Set<Material> set = this.flagSnapshotCache.getSnapshot(localPlayer.getLocation()).queryValue(localPlayer, Flags.PERMIT_COMPLETELY);
+        return set != null && set.contains(material);
     }
 
     private void sendBlocked(Player player, String itemName)
@@ -110,16 +102,18 @@ public class EntityListener implements Listener
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = false)
     public void onItemInteract(PlayerInteractEvent event)
     {
+        // Most interactions are with items that can't be blocked, skip them before wrapping the player
+        ItemStack item = event.getItem();
+        if (item == null) return;
+        Material mat = item.getType();
+        if (!BlockableItemFlag.isBlockable(mat)) return;
+        
         Player player = event.getPlayer();
-        LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-        if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+        LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+        if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
         {
             return;
         }
-        ItemStack item = event.getItem();
-        if (item == null) return;
-        Material mat = item.getType();
-        if (mat == Material.AIR) return;
         
         // Check if item is blocked
         if (this.isBlocked(localPlayer, mat))
@@ -149,14 +143,18 @@ public class EntityListener implements Listener
     public void onInteractEntity(PlayerInteractEntityEvent event)
     {
         Player player = event.getPlayer();
-        LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-        if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+        ItemStack item = player.getInventory().getItemInMainHand();
+        Material mat = item != null ? item.getType() : Material.AIR;
+        if (!BlockableItemFlag.isBlockable(mat))
         {
             return;
         }
-        ItemStack item = player.getInventory().getItemInMainHand();
-        Material mat = item != null ? item.getType() : Material.AIR;
-        if (mat != Material.AIR && this.isBlocked(localPlayer, mat))
+        LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+        if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
+        {
+            return;
+        }
+        if (this.isBlocked(localPlayer, mat))
         {
             event.setCancelled(true);
             this.sendBlocked(player, mat.name());
@@ -170,14 +168,18 @@ public class EntityListener implements Listener
         {
             return;
         }
-        LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-        if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+        ItemStack item = player.getInventory().getItemInMainHand();
+        Material mat = item != null ? item.getType() : Material.AIR;
+        if (!BlockableItemFlag.isBlockable(mat))
         {
             return;
         }
-        ItemStack item = player.getInventory().getItemInMainHand();
-        Material mat = item != null ? item.getType() : Material.AIR;
-        if (mat != Material.AIR && this.isBlocked(localPlayer, mat))
+        LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+        if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
+        {
+            return;
+        }
+        if (this.isBlocked(localPlayer, mat))
         {
             event.setCancelled(true);
             this.sendBlocked(player, mat.name());
@@ -191,15 +193,19 @@ public class EntityListener implements Listener
         {
             return;
         }
-        LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-        if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
-        {
-            return;
-        }
         // Try to infer from main hand item
         ItemStack item = player.getInventory().getItemInMainHand();
         Material mat = item != null ? item.getType() : Material.AIR;
-        if (mat != Material.AIR && this.isBlocked(localPlayer, mat))
+        if (!BlockableItemFlag.isBlockable(mat))
+        {
+            return;
+        }
+        LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+        if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
+        {
+            return;
+        }
+        if (this.isBlocked(localPlayer, mat))
         {
             event.setCancelled(true);
             this.sendBlocked(player, mat.name());
@@ -216,8 +222,8 @@ public class EntityListener implements Listener
         }
         
         Player player = event.getPlayer();
-        LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-        if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+        LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+        if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
         {
             return;
         }
@@ -382,8 +388,8 @@ public class EntityListener implements Listener
 			return;
 		}
 
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-		if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+		if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
 		{
 			return;
 		}
@@ -416,13 +422,13 @@ public class EntityListener implements Listener
 		Entity entity = event.getEntity();
 		if (entity instanceof Player player)
 		{
-			LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-			if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+			LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+			if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
 			{
 				return;
 			}
 
-			ForcedStateFlag.ForcedState state = this.regionContainer.createQuery().queryValue(localPlayer.getLocation(), localPlayer, Flags.GLIDE);
+			ForcedStateFlag.ForcedState state = this.flagSnapshotCache.getSnapshot(localPlayer.getLocation()).queryValue(localPlayer, Flags.GLIDE);
 			switch(state)
 			{
 				case ALLOW:
@@ -460,6 +466,26 @@ public class EntityListener implements Listener
 			}
 		}
 	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityPotionEffectEvent(EntityPotionEffectEvent event)
+	{
+		if (!(event.getEntity() instanceof Player player) || !player.isValid())
+		{
+			return;
+		}
+
+		try
+		{
+			// Lets the potion effects handler reapply effects that expired or got removed
+			Session session = this.sessionManager.get(this.localPlayerCache.wrapPlayer(player));
+
+			session.getHandler(PotionEffectsHandler.class).onEffectsChanged();
+		}
+		catch (IllegalStateException wgBug)
+		{
+		}
+	}
 }
 
 
@@ -1,6 +1,5 @@
 package dev.tins.worldguardextraflagsplus.listeners;
 
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.session.SessionManager;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
@@ -13,12 +12,13 @@ import com.sk89q.worldguard.session.Session;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import dev.tins.worldguardextraflagsplus.WorldGuardExtraFlagsPlusPlugin;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
 import dev.tins.worldguardextraflagsplus.wg.handlers.GiveEffectsFlagHandler;
 
 @RequiredArgsConstructor
 public class EntityPotionEffectEventListener implements Listener
 {
-	private final WorldGuardPlugin worldGuardPlugin;
+	private final LocalPlayerCache localPlayerCache;
 	private final SessionManager sessionManager;
 	
 	@EventHandler(ignoreCancelled = true)
@@ -36,7 +36,7 @@ public class EntityPotionEffectEventListener implements Listener
 
 		try
 		{
-			Session session = this.sessionManager.get(this.worldGuardPlugin.wrapPlayer(player));
+			Session session = this.sessionManager.get(this.localPlayerCache.wrapPlayer(player));
 			
 			GiveEffectsFlagHandler giveEffectsHandler = session.getHandler(GiveEffectsFlagHandler.class);
 			if (giveEffectsHandler.isSupressRemovePotionPacket())
@@ -3,8 +3,6 @@ package dev.tins.worldguardextraflagsplus.listeners;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import com.sk89q.worldguard.session.SessionManager;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -14,10 +12,12 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
 import org.bukkit.event.player.PlayerItemDamageEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -25,16 +25,21 @@ import org.bukkit.inventory.meta.PotionMeta;
 import org.bukkit.potion.PotionEffect;
 import org.spigotmc.event.player.PlayerSpawnLocationEvent;
 
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
 import com.sk89q.worldguard.protection.flags.StateFlag.State;
 import com.sk89q.worldguard.session.Session;
 
 import lombok.RequiredArgsConstructor;
+import dev.tins.worldguardextraflagsplus.Messages;
 import dev.tins.worldguardextraflagsplus.WorldGuardExtraFlagsPlusPlugin;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
 import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshot;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BypassHandler;
 import dev.tins.worldguardextraflagsplus.wg.handlers.FlyFlagHandler;
 import dev.tins.worldguardextraflagsplus.wg.handlers.GiveEffectsFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,9 +49,10 @@ public class PlayerListener implements Listener
 {
 	private final WorldGuardExtraFlagsPlusPlugin plugin;
 
-	private final WorldGuardPlugin worldGuardPlugin;
-	private final RegionContainer regionContainer;
+	private final LocalPlayerCache localPlayerCache;
 	private final SessionManager sessionManager;
+	private final FlagSnapshotCache flagSnapshotCache;
+	private final PlaceholderCache placeholderCache;
 	
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onPlayerTeleportEvent(PlayerTeleportEvent event)
@@ -61,8 +67,8 @@ public class PlayerListener implements Listener
 	{
 		Player player = event.getEntity();
 
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-		ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(localPlayer.getLocation());
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+		FlagSnapshot regions = this.flagSnapshotCache.getSnapshot(localPlayer.getLocation());
 		
 		Boolean keepInventory = regions.queryValue(localPlayer, Flags.KEEP_INVENTORY);
 		if (keepInventory != null)
@@ -92,8 +98,8 @@ public class PlayerListener implements Listener
 	{
 		Player player = event.getPlayer();
 
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
-		ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(localPlayer.getLocation());
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
+		FlagSnapshot regions = this.flagSnapshotCache.getSnapshot(localPlayer.getLocation());
 		
 		String prefix = regions.queryValue(localPlayer, Flags.CHAT_PREFIX);
 		if (prefix != null)
@@ -115,13 +121,11 @@ public class PlayerListener implements Listener
 	/**
 	 * Processes PlaceholderAPI placeholders in a string if PlaceholderAPI is available.
 	 * Falls back to returning the original string if PlaceholderAPI is not available.
+	 * Results are cached per player and text, see {@link PlaceholderCache}.
 	 * 
 	 * @param player The player to process placeholders for
 	 * @param text The text containing placeholders
 	 * @return The text with placeholders processed, or original text if PAPI is not available
-	 * 
-	 * TODO (Optional): Add caching mechanism to avoid calling PlaceholderAPI.setPlaceholders() on every chat event.
-	 * Could cache results with key: player UUID + text hash, with TTL (e.g., 1-5 seconds) to balance freshness and performance.
 	 */
 	private String processPlaceholders(Player player, String text)
 	{
@@ -130,43 +134,19 @@ public class PlayerListener implements Listener
 			return text;
 		}
 		
-		// Check if PlaceholderAPI is available
-		if (!isPlaceholderAPIAvailable())
-		{
-			return text; // Return original text if PAPI is not available
-		}
+		String processed = this.placeholderCache.setPlaceholders(player, text);
 		
-		try
-		{
-			// Use reflection to call PlaceholderAPI.setPlaceholders() (soft dependency)
-			Class<?> placeholderAPIClass = Class.forName("me.clip.placeholderapi.PlaceholderAPI");
-			java.lang.reflect.Method setPlaceholdersMethod = placeholderAPIClass.getMethod("setPlaceholders", Player.class, String.class);
-			return (String) setPlaceholdersMethod.invoke(null, player, text);
-		}
-		catch (Exception e)
-		{
-			// PlaceholderAPI not available or error occurred - return original text
-			return text;
-		}
-	}
-	
-	/**
-	 * Checks if PlaceholderAPI is available on the server.
-	 * 
-	 * @return true if PlaceholderAPI is loaded, false otherwise
-	 */
-	private boolean isPlaceholderAPIAvailable()
-	{
-		return this.plugin.getServer().getPluginManager().getPlugin("PlaceholderAPI") != null;
+		// PlaceholderAPI not available or error occurred - return original text
+		return processed != null ? processed : text;
 	}
 
 	@EventHandler(ignoreCancelled = true)
 	public void onPlayerRespawnEvent(PlayerRespawnEvent event)
 	{
 		Player player = event.getPlayer();
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
 		
-		Location respawnLocation = this.regionContainer.createQuery().queryValue(localPlayer.getLocation(), localPlayer, Flags.RESPAWN_LOCATION);
+		Location respawnLocation = this.flagSnapshotCache.getSnapshot(localPlayer.getLocation()).queryValue(localPlayer, Flags.RESPAWN_LOCATION);
 		if (respawnLocation != null)
 		{
 			event.setRespawnLocation(BukkitAdapter.adapt(respawnLocation));
@@ -189,14 +169,14 @@ public class PlayerListener implements Listener
 
 			effects.addAll(potionMeta.getCustomEffects());
 
-			this.sessionManager.get(this.worldGuardPlugin.wrapPlayer(player)).getHandler(GiveEffectsFlagHandler.class).drinkPotion(player, effects);
+			this.sessionManager.get(this.localPlayerCache.wrapPlayer(player)).getHandler(GiveEffectsFlagHandler.class).drinkPotion(player, effects);
 		}
 		else
 		{
 			Material material = event.getItem().getType();
 			if (material == Material.MILK_BUCKET)
 			{
-				this.sessionManager.get(this.worldGuardPlugin.wrapPlayer(player)).getHandler(GiveEffectsFlagHandler.class).drinkMilk(player);
+				this.sessionManager.get(this.localPlayerCache.wrapPlayer(player)).getHandler(GiveEffectsFlagHandler.class).drinkMilk(player);
 			}
 		}
 	}
@@ -206,7 +186,7 @@ public class PlayerListener implements Listener
 	{
 		Player player = event.getPlayer();
 		
-		Session wgSession = this.sessionManager.getIfPresent(this.worldGuardPlugin.wrapPlayer(player));
+		Session wgSession = this.sessionManager.getIfPresent(this.localPlayerCache.wrapPlayer(player));
 		if (wgSession != null)
 		{
 			Boolean value = wgSession.getHandler(FlyFlagHandler.class).getCurrentValue();
@@ -223,7 +203,7 @@ public class PlayerListener implements Listener
 	
 	private void checkFlyStatus(Player player, Boolean originalValueOverwrite)
 	{
-		FlyFlagHandler flyFlagHandler = this.sessionManager.get(this.worldGuardPlugin.wrapPlayer(player)).getHandler(FlyFlagHandler.class);
+		FlyFlagHandler flyFlagHandler = this.sessionManager.get(this.localPlayerCache.wrapPlayer(player)).getHandler(FlyFlagHandler.class);
 
 		Boolean currentValue = flyFlagHandler.getCurrentValue();
 		if (currentValue != null)
@@ -241,9 +221,9 @@ public class PlayerListener implements Listener
 	public void onPlayerItemDamageEvent(PlayerItemDamageEvent event)
 	{
 		Player player = event.getPlayer();
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
 
-		if (this.regionContainer.createQuery().queryState(localPlayer.getLocation(), localPlayer, Flags.ITEM_DURABILITY) == State.DENY)
+		if (this.flagSnapshotCache.getSnapshot(localPlayer.getLocation()).queryState(localPlayer, Flags.ITEM_DURABILITY) == State.DENY)
 		{
 			event.setCancelled(true);
 		}
@@ -253,9 +233,9 @@ public class PlayerListener implements Listener
 	public void onPlayerSpawnLocationEvent(PlayerSpawnLocationEvent event)
 	{
 		Player player = event.getPlayer();
-		LocalPlayer localPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
 
-		Location location = this.regionContainer.createQuery().queryValue(BukkitAdapter.adapt(event.getSpawnLocation()), localPlayer, Flags.JOIN_LOCATION);
+		Location location = this.flagSnapshotCache.getSnapshot(BukkitAdapter.adapt(event.getSpawnLocation())).queryValue(localPlayer, Flags.JOIN_LOCATION);
 		if (location != null)
 		{
 			event.setSpawnLocation(BukkitAdapter.adapt(location));
@@ -267,26 +247,62 @@ public class PlayerListener implements Listener
 	{
 		Player player = event.getPlayer();
 		
-		Boolean value = this.sessionManager.get(this.worldGuardPlugin.wrapPlayer(player)).getHandler(FlyFlagHandler.class).getCurrentValue();
+		this.localPlayerCache.add(player);
+		
+		Boolean value = this.sessionManager.get(this.localPlayerCache.wrapPlayer(player)).getHandler(FlyFlagHandler.class).getCurrentValue();
 		if (value != null)
 		{
 			WorldGuardUtils.getScheduler().runAtEntity(player, (wrappedTask) -> player.setAllowFlight(value));
 		}
 	}
 
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuitEvent(PlayerQuitEvent event)
+	{
+		this.localPlayerCache.remove(event.getPlayer().getUniqueId());
+
+		this.placeholderCache.invalidate(event.getPlayer().getUniqueId());
+
+		WorldGuardUtils.getScheduler().clearMailbox(event.getPlayer().getUniqueId());
+
+		Messages.clearCooldown(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerCommandSendEvent(PlayerCommandSendEvent event)
+	{
+		// The command list is resent when the player's permissions are recalculated (op changes, LuckPerms updates)
+		this.invalidateBypass(event.getPlayer());
+	}
+
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onPlayerChangedWorldEvent(PlayerChangedWorldEvent event)
 	{
 		Player player = event.getPlayer();
 
+		this.invalidateBypass(player);
+
 		//Some plugins toggle flight off on world change based on permissions,
 		//so we need to make sure to force the flight status.
-		Boolean value = this.sessionManager.get(this.worldGuardPlugin.wrapPlayer(player)).getHandler(FlyFlagHandler.class).getCurrentValue();
+		Boolean value = this.sessionManager.get(this.localPlayerCache.wrapPlayer(player)).getHandler(FlyFlagHandler.class).getCurrentValue();
 		if (value != null)
 		{
 			WorldGuardUtils.getScheduler().runAtEntity(player, (wrappedTask) -> player.setAllowFlight(value));
 		}
 	}
+
+	private void invalidateBypass(Player player)
+	{
+		Session session = this.sessionManager.getIfPresent(this.localPlayerCache.wrapPlayer(player));
+		if (session != null)
+		{
+			BypassHandler bypassHandler = session.getHandler(BypassHandler.class);
+			if (bypassHandler != null)
+			{
+				bypassHandler.invalidate();
+			}
+		}
+	}
 }
 
 
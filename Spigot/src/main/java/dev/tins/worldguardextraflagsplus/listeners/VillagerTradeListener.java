@@ -2,12 +2,13 @@ package dev.tins.worldguardextraflagsplus.listeners;
 
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
-import com.sk89q.worldguard.protection.ApplicableRegionSet;
 import com.sk89q.worldguard.protection.flags.StateFlag.State;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import com.sk89q.worldguard.session.SessionManager;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshot;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BypassHandler;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
@@ -18,9 +19,9 @@ import org.bukkit.event.player.PlayerInteractEntityEvent;
 @RequiredArgsConstructor
 public class VillagerTradeListener implements Listener
 {
-	private final WorldGuardPlugin worldGuardPlugin;
-	private final RegionContainer regionContainer;
+	private final LocalPlayerCache localPlayerCache;
 	private final SessionManager sessionManager;
+	private final FlagSnapshotCache flagSnapshotCache;
 	
 	@EventHandler(ignoreCancelled = true)
 	public void onInteract(PlayerInteractEntityEvent event)
@@ -31,16 +32,16 @@ public class VillagerTradeListener implements Listener
 		}
 		
 		Player player = event.getPlayer();
-		LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(player);
+		LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(player);
 		
 		// Check if player has bypass
-		if (this.sessionManager.hasBypass(localPlayer, localPlayer.getWorld()))
+		if (BypassHandler.hasBypass(this.sessionManager, localPlayer, localPlayer.getWorld()))
 		{
 			return;
 		}
 		
 		// Get region set at villager's location
-		ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(BukkitAdapter.adapt(villager.getLocation()));
+		FlagSnapshot regions = this.flagSnapshotCache.getSnapshot(BukkitAdapter.adapt(villager.getLocation()));
 		
 		// Check villager-trade flag state
 		State state = regions.queryState(localPlayer, Flags.VILLAGER_TRADE);
@@ -7,18 +7,19 @@ import com.sk89q.worldedit.util.eventbus.Subscribe;
 
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 import com.sk89q.worldguard.session.SessionManager;
 import lombok.RequiredArgsConstructor;
 import dev.tins.worldguardextraflagsplus.we.handlers.WorldEditFlagHandler;
+import dev.tins.worldguardextraflagsplus.wg.LocalPlayerCache;
+import dev.tins.worldguardextraflagsplus.wg.handlers.BypassHandler;
 import org.bukkit.Bukkit;
 
 @RequiredArgsConstructor
 public class WorldEditListener
 {
-	private final WorldGuardPlugin worldGuardPlugin;
+	private final LocalPlayerCache localPlayerCache;
 	private final RegionContainer regionContainer;
 	private final SessionManager sessionManager;
 	
@@ -35,8 +36,8 @@ public class WorldEditListener
 
 		if (event.getActor() instanceof Player player)
 		{
-			LocalPlayer localPlayer = this.worldGuardPlugin.wrapPlayer(Bukkit.getPlayer(player.getUniqueId()));
-			if (this.sessionManager.hasBypass(localPlayer, world))
+			LocalPlayer localPlayer = this.localPlayerCache.wrapPlayer(Bukkit.getPlayer(player.getUniqueId()));
+			if (BypassHandler.hasBypass(this.sessionManager, localPlayer, world))
 			{
 				return;
 			}
@@ -1,17 +1,37 @@
 package dev.tins.worldguardextraflagsplus.listeners;
 
-import dev.tins.worldguardextraflagsplus.Messages;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
 import dev.tins.worldguardextraflagsplus.WorldGuardExtraFlagsPlusPlugin;
+import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.server.ServerCommandEvent;
 
+/**
+ * Reloads our caches after WorldGuard's own reload command and checks for region changes right after region commands.
+ * WorldGuard fires no event when it reloads or a region changes, so the commands are detected,
+ * most commands are told apart by their first character without running the patterns.
+ */
 public class WorldGuardReloadListener implements Listener
 {
+	// wg reload, worldguard reload and their worldguard: namespaced forms, handles multiple spaces
+	private static final Pattern RELOAD_COMMAND = Pattern.compile("^(?:worldguard:)?(?:wg|worldguard)\\s+reload(?:\\s.*)?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	// Region subcommands (and their aliases) changing what the region change tracker compares, members and owners don't
+	private static final Pattern REGION_COMMAND = Pattern.compile("^(?:worldguard:)?(?:rg|region|regions)\\s+"
+			+ "(?:flag|f|define|def|d|create|redefine|update|move|claim|remove|delete|del|rem|setpriority|priority|pri|setparent|parent|par|load|reload)"
+			+ "(?:\\s.*)?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
 	private final WorldGuardExtraFlagsPlusPlugin plugin;
 
+	// Player commands run on region threads on Folia, console commands on the global one
+	private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+	private final AtomicBoolean pollScheduled = new AtomicBoolean();
+
 	public WorldGuardReloadListener(WorldGuardExtraFlagsPlusPlugin plugin)
 	{
 		this.plugin = plugin;
@@ -20,43 +40,84 @@ public class WorldGuardReloadListener implements Listener
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onPlayerCommand(PlayerCommandPreprocessEvent event)
 	{
-		String command = event.getMessage().toLowerCase().trim();
-		
-		// Check if command is /wg reload or /worldguard reload (handles multiple spaces)
-		if (command.matches("^/wg\\s+reload.*") || command.matches("^/worldguard\\s+reload.*"))
-		{
-			try
-			{
-				// Reload our messages when WorldGuard reload is triggered
-				Messages.reloadMessages();
-				plugin.getLogger().info("Messages reloaded automatically due to WorldGuard reload command");
-			}
-			catch (Exception e)
-			{
-				plugin.getLogger().warning("Failed to reload messages during WorldGuard reload: " + e.getMessage());
-			}
-		}
+		// Player commands start with a slash
+		this.onCommand(event.getMessage(), 1);
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onConsoleCommand(ServerCommandEvent event)
 	{
-		String command = event.getCommand().toLowerCase().trim();
-		
-		// Check if command is wg reload or worldguard reload (handles multiple spaces)
-		if (command.matches("^wg\\s+reload.*") || command.matches("^worldguard\\s+reload.*"))
+		String command = event.getCommand();
+
+		// Console commands may be sent with a slash too
+		this.onCommand(command, command.startsWith("/") ? 1 : 0);
+	}
+
+	private void onCommand(String command, int start)
+	{
+		int length = command.length();
+		while (start < length && Character.isWhitespace(command.charAt(start)))
+		{
+			start++;
+		}
+
+		if (start >= length)
+		{
+			return;
+		}
+
+		// Both patterns may start with the worldguard: namespace
+		char first = Character.toLowerCase(command.charAt(start));
+		if (first != 'w' && first != 'r')
+		{
+			return;
+		}
+
+		if (WorldGuardReloadListener.RELOAD_COMMAND.matcher(command).region(start, length).matches())
+		{
+			this.scheduleReload();
+		}
+		else if (WorldGuardReloadListener.REGION_COMMAND.matcher(command).region(start, length).matches())
+		{
+			this.schedulePoll();
+		}
+	}
+
+	private void schedulePoll()
+	{
+		// The command runs after this event, its change is visible on the next tick instead of the next periodic poll
+		if (!this.pollScheduled.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		WorldGuardUtils.getScheduler().runNextTick(task -> {
+			this.pollScheduled.set(false);
+
+			this.plugin.getRegionChangeTracker().poll();
+		});
+	}
+
+	private void scheduleReload()
+	{
+		// The command runs after this event, reload once WorldGuard has replaced its configuration and regions
+		if (!this.reloadScheduled.compareAndSet(false, true))
 		{
+			return;
+		}
+
+		WorldGuardUtils.getScheduler().runNextTick(task -> {
+			this.reloadScheduled.set(false);
+
 			try
 			{
-				// Reload our messages when WorldGuard reload is triggered
-				Messages.reloadMessages();
-				plugin.getLogger().info("Messages reloaded automatically due to WorldGuard reload command");
+				this.plugin.reloadCaches();
+				this.plugin.getLogger().info("Messages and caches reloaded automatically due to WorldGuard reload command");
 			}
 			catch (Exception e)
 			{
-				plugin.getLogger().warning("Failed to reload messages during WorldGuard reload: " + e.getMessage());
+				this.plugin.getLogger().warning("Failed to reload messages and caches during WorldGuard reload: " + e.getMessage());
 			}
-		}
+		});
 	}
 }
-
@@ -1,14 +1,6 @@
 package dev.tins.worldguardextraflagsplus.listeners;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.flags.StateFlag;
-import com.sk89q.worldguard.protection.managers.RegionManager;
-import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
-import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.wg.ChunkTicketManager;
 import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.event.EventHandler;
@@ -16,50 +8,38 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import dev.tins.worldguardextraflagsplus.WorldGuardExtraFlagsPlusPlugin;
 
 @RequiredArgsConstructor
 public class WorldListener implements Listener
 {
-	private final WorldGuardExtraFlagsPlusPlugin plugin;
-
-	private final RegionContainer regionContainer;
+	private final ChunkTicketManager chunkTicketManager;
 	
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onWorldLoadEvent(WorldLoadEvent event)
 	{
 		World world = event.getWorld();
 		
-		this.plugin.doUnloadChunkFlagCheck(world);
+		this.chunkTicketManager.load(world);
 	}
 
-	@EventHandler(ignoreCancelled = true)
-	public void onChunkUnloadEvent(ChunkUnloadEvent event)
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onWorldUnloadEvent(WorldUnloadEvent event)
 	{
 		World world = event.getWorld();
-		Chunk chunk = event.getChunk();
 
-		this.doUnloadChunkFlagCheck(world, chunk);
+		this.chunkTicketManager.unload(world);
 	}
 
-	private void doUnloadChunkFlagCheck(org.bukkit.World world, Chunk chunk)
+	@EventHandler(ignoreCancelled = true)
+	public void onChunkUnloadEvent(ChunkUnloadEvent event)
 	{
-		RegionManager regionManager = this.regionContainer.get(BukkitAdapter.adapt(world));
-		if (regionManager == null)
-		{
-			return;
-		}
+		World world = event.getWorld();
+		Chunk chunk = event.getChunk();
 
-		for (ProtectedRegion region : regionManager.getApplicableRegions(new ProtectedCuboidRegion("UnloadChunkFlagTester", BlockVector3.at(chunk.getX() * 16, world.getMinHeight(), chunk.getZ() * 16), BlockVector3.at(chunk.getX() * 16 + 15, world.getMaxHeight(), chunk.getZ() * 16 + 15))))
-		{
-			if (region.getFlag(Flags.CHUNK_UNLOAD) == StateFlag.State.DENY)
-			{
-				chunk.addPluginChunkTicket(this.plugin);
-			}
-		}
+		this.chunkTicketManager.onChunkUnload(world, chunk.getX(), chunk.getZ());
 	}
 }
 
@@ -1,5 +1,10 @@
 package dev.tins.worldguardextraflagsplus.we.handlers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.sk89q.worldguard.LocalPlayer;
 
 import com.sk89q.worldedit.WorldEditException;
@@ -12,14 +17,29 @@ import com.sk89q.worldguard.protection.ApplicableRegionSet;
 import com.sk89q.worldguard.protection.flags.StateFlag.State;
 
 import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.wg.cache.FlagSnapshotCache;
 
 public class WorldEditFlagHandler extends AbstractDelegateExtent
 {
 	private final LocalPlayer player;
 
 	private final RegionManager regionManager;
-	
+
+	// Bounding boxes of every region that can resolve the flag to DENY, flattened as min x/y/z, max x/y/z
+	private final int[] denyBounds;
+	private final boolean denyEverywhere;
+
+	// Union of all deny bounding boxes
+	private final int minX, minY, minZ;
+	private final int maxX, maxY, maxZ;
+
+	// Verdicts per 16x16x16 section for this edit session, only MIXED sections query per block
+	private final Map<Long, SectionVerdict> sectionVerdicts = new ConcurrentHashMap<>();
+	private volatile SectionEntry lastSection;
+
 	public WorldEditFlagHandler(World ignoredWorld, Extent extent, LocalPlayer player, RegionManager regionManager)
 	{
 		super(extent);
@@ -27,20 +47,173 @@ public class WorldEditFlagHandler extends AbstractDelegateExtent
 		this.player = player;
 
 		this.regionManager = regionManager;
+
+		List<ProtectedRegion> denyRegions = new ArrayList<>();
+		boolean denyEverywhere = false;
+		for (ProtectedRegion region : regionManager.getRegions().values())
+		{
+			if (WorldEditFlagHandler.getEffectiveValue(region) != State.DENY)
+			{
+				continue;
+			}
+
+			// The global region has no bounds, every block has to be checked
+			if (region.getId().equals(ProtectedRegion.GLOBAL_REGION))
+			{
+				denyEverywhere = true;
+				break;
+			}
+
+			denyRegions.add(region);
+		}
+
+		this.denyEverywhere = denyEverywhere;
+		this.denyBounds = new int[denyRegions.size() * 6];
+
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for (int i = 0; i < denyRegions.size(); i++)
+		{
+			BlockVector3 min = denyRegions.get(i).getMinimumPoint();
+			BlockVector3 max = denyRegions.get(i).getMaximumPoint();
+
+			this.denyBounds[i * 6] = min.x();
+			this.denyBounds[i * 6 + 1] = min.y();
+			this.denyBounds[i * 6 + 2] = min.z();
+			this.denyBounds[i * 6 + 3] = max.x();
+			this.denyBounds[i * 6 + 4] = max.y();
+			this.denyBounds[i * 6 + 5] = max.z();
+
+			minX = Math.min(minX, min.x());
+			minY = Math.min(minY, min.y());
+			minZ = Math.min(minZ, min.z());
+			maxX = Math.max(maxX, max.x());
+			maxY = Math.max(maxY, max.y());
+			maxZ = Math.max(maxZ, max.z());
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
 	}
 
 	@Override
     public boolean setBlock(BlockVector3 location, BlockStateHolder block) throws WorldEditException
     {
+		// Fast path, nothing can deny a block outside of every deny region
+		if (!this.denyEverywhere && !this.isInDenyBounds(location.x(), location.y(), location.z()))
+		{
+			return super.setBlock(location, block);
+		}
+
+		switch (this.getSectionVerdict(location.x() >> 4, location.y() >> 4, location.z() >> 4))
+		{
+			case ALLOW:
+				return super.setBlock(location, block);
+			case DENY:
+				return false;
+			default:
+				break;
+		}
+
     	ApplicableRegionSet regions = this.regionManager.getApplicableRegions(location);
     	if (regions.queryState(this.player, Flags.WORLDEDIT) != State.DENY)
     	{
     		return super.setBlock(location, block);
     	}
-    	
+
     	return false;
     }
-}
 
+	private boolean isInDenyBounds(int x, int y, int z)
+	{
+		if (x < this.minX | x > this.maxX | y < this.minY | y > this.maxY | z < this.minZ | z > this.maxZ)
+		{
+			return false;
+		}
 
+		int[] bounds = this.denyBounds;
+		for (int i = 0; i < bounds.length; i += 6)
+		{
+			if (x >= bounds[i] & y >= bounds[i + 1] & z >= bounds[i + 2] & x <= bounds[i + 3] & y <= bounds[i + 4] & z <= bounds[i + 5])
+			{
+				return true;
+			}
+		}
 
+		return false;
+	}
+
+	private SectionVerdict getSectionVerdict(int sectionX, int sectionY, int sectionZ)
+	{
+		long key = FlagSnapshotCache.sectionKey(sectionX, sectionY, sectionZ);
+
+		// Edits mostly walk blocks section by section, skip the map for consecutive blocks
+		SectionEntry last = this.lastSection;
+		if (last != null && last.key() == key)
+		{
+			return last.verdict();
+		}
+
+		SectionVerdict verdict = this.sectionVerdicts.computeIfAbsent(key, k -> this.computeSectionVerdict(sectionX, sectionY, sectionZ));
+		this.lastSection = new SectionEntry(key, verdict);
+		return verdict;
+	}
+
+	/**
+	 * A section is uniform when every region touching it that has a value for the flag covers it completely.
+	 * Regions without a value never take part in the result, so they can cross the section freely.
+	 */
+	private SectionVerdict computeSectionVerdict(int sectionX, int sectionY, int sectionZ)
+	{
+		BlockVector3 min = BlockVector3.at(sectionX << 4, sectionY << 4, sectionZ << 4);
+		BlockVector3 max = min.add(15, 15, 15);
+
+		for (ProtectedRegion region : this.regionManager.getApplicableRegions(new ProtectedCuboidRegion(FlagSnapshotCache.SECTION_REGION_ID, min, max)))
+		{
+			if (WorldEditFlagHandler.getEffectiveValue(region) == null)
+			{
+				continue;
+			}
+
+			// Only cuboids can be checked for full containment by their corners
+			if (!(region instanceof ProtectedCuboidRegion) || !region.contains(min) || !region.contains(max))
+			{
+				return SectionVerdict.MIXED;
+			}
+		}
+
+		return this.regionManager.getApplicableRegions(min).queryState(this.player, Flags.WORLDEDIT) != State.DENY ? SectionVerdict.ALLOW : SectionVerdict.DENY;
+	}
+
+	/**
+	 * Resolves the flag the way WorldGuard does for a single region, falling back to its parents.
+	 */
+	private static State getEffectiveValue(ProtectedRegion region)
+	{
+		for (ProtectedRegion current = region; current != null; current = current.getParent())
+		{
+			State value = current.getFlag(Flags.WORLDEDIT);
+			if (value != null)
+			{
+				return value;
+			}
+		}
+
+		return null;
+	}
+
+	private enum SectionVerdict
+	{
+		ALLOW,
+		DENY,
+		MIXED
+	}
+
+	private record SectionEntry(long key, SectionVerdict verdict)
+	{
+	}
+}
@@ -14,6 +14,7 @@ import com.sk89q.worldguard.protection.flags.StateFlag;
 import com.sk89q.worldguard.protection.flags.StringFlag;
 import com.sk89q.worldguard.protection.flags.Flag;
 
+import dev.tins.worldguardextraflagsplus.flags.data.PlaceholderLevel;
 import dev.tins.worldguardextraflagsplus.flags.data.SoundData;
 import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
 
@@ -55,10 +56,10 @@ public final class Flags
 	
 	public final static StateFlag NETHER_PORTALS = new StateFlag("nether-portals", true);
 
-	public final static SetFlag<Material> ALLOW_BLOCK_PLACE = new SetFlag<Material>("allow-block-place", new BlockMaterialFlag(null));
-	public final static SetFlag<Material> DENY_BLOCK_PLACE = new SetFlag<Material>("deny-block-place", new BlockMaterialFlag(null));
-	public final static SetFlag<Material> ALLOW_BLOCK_BREAK = new SetFlag<Material>("allow-block-break", new BlockMaterialFlag(null));
-	public final static SetFlag<Material> DENY_BLOCK_BREAK = new SetFlag<Material>("deny-block-break", new BlockMaterialFlag(null));
+	public final static SetFlag<Material> ALLOW_BLOCK_PLACE = new MaterialSetFlag("allow-block-place", new BlockMaterialFlag(null));
+	public final static SetFlag<Material> DENY_BLOCK_PLACE = new MaterialSetFlag("deny-block-place", new BlockMaterialFlag(null));
+	public final static SetFlag<Material> ALLOW_BLOCK_BREAK = new MaterialSetFlag("allow-block-break", new BlockMaterialFlag(null));
+	public final static SetFlag<Material> DENY_BLOCK_BREAK = new MaterialSetFlag("deny-block-break", new BlockMaterialFlag(null));
 
 	public final static ForcedStateFlag GLIDE = new ForcedStateFlag("glide");
 	
@@ -72,10 +73,10 @@ public final class Flags
 	
 	public final static BooleanFlag DISABLE_COLLISION = new BooleanFlag("disable-collision");
 
-	public final static SetFlag<String> PERMIT_COMPLETELY = new CustomSetFlag("permit-completely", new BlockableItemFlag(null));
+	public final static SetFlag<Material> PERMIT_COMPLETELY = new BlockableItemSetFlag("permit-completely");
 
-	public final static Flag<String> ENTRY_MIN_LEVEL = new PlaceholderLevelFlag("entry-min-level");
-	public final static Flag<String> ENTRY_MAX_LEVEL = new PlaceholderLevelFlag("entry-max-level");
+	public final static Flag<PlaceholderLevel> ENTRY_MIN_LEVEL = new PlaceholderLevelFlag("entry-min-level");
+	public final static Flag<PlaceholderLevel> ENTRY_MAX_LEVEL = new PlaceholderLevelFlag("entry-max-level");
 }
 
 
@@ -0,0 +1,171 @@
+package dev.tins.worldguardextraflagsplus.flags.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.bukkit.Material;
+
+/**
+ * Set of materials backed by an ordinal bitset.
+ * Membership checks are a single word lookup and never allocate.
+ */
+public final class MaterialBitSet extends AbstractSet<Material>
+{
+	private static final Material[] MATERIALS = Material.values();
+
+	private final long[] words = new long[(MaterialBitSet.MATERIALS.length + 63) >>> 6];
+	private int size;
+
+	public MaterialBitSet()
+	{
+	}
+
+	public MaterialBitSet(Collection<? extends Material> materials)
+	{
+		for (Material material : materials)
+		{
+			if (material != null)
+			{
+				this.add(material);
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		if (!(o instanceof Material material))
+		{
+			return false;
+		}
+
+		int ordinal = material.ordinal();
+		return (this.words[ordinal >>> 6] & (1L << ordinal)) != 0;
+	}
+
+	@Override
+	public boolean add(Material material)
+	{
+		int ordinal = material.ordinal();
+		long word = this.words[ordinal >>> 6];
+		long updated = word | (1L << ordinal);
+		if (updated == word)
+		{
+			return false;
+		}
+
+		this.words[ordinal >>> 6] = updated;
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		if (!(o instanceof Material material))
+		{
+			return false;
+		}
+
+		int ordinal = material.ordinal();
+		long word = this.words[ordinal >>> 6];
+		long updated = word & ~(1L << ordinal);
+		if (updated == word)
+		{
+			return false;
+		}
+
+		this.words[ordinal >>> 6] = updated;
+		this.size--;
+		return true;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(this.words, 0L);
+		this.size = 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
+	@Override
+	public Iterator<Material> iterator()
+	{
+		return new Iterator<>()
+		{
+			private int next = MaterialBitSet.this.nextSetBit(0);
+			private int last = -1;
+
+			@Override
+			public boolean hasNext()
+			{
+				return this.next >= 0;
+			}
+
+			@Override
+			public Material next()
+			{
+				if (this.next < 0)
+				{
+					throw new NoSuchElementException();
+				}
+
+				this.last = this.next;
+				this.next = MaterialBitSet.this.nextSetBit(this.next + 1);
+				return MaterialBitSet.MATERIALS[this.last];
+			}
+
+			@Override
+			public void remove()
+			{
+				if (this.last < 0)
+				{
+					throw new IllegalStateException();
+				}
+
+				MaterialBitSet.this.remove(MaterialBitSet.MATERIALS[this.last]);
+				this.last = -1;
+			}
+		};
+	}
+
+	private int nextSetBit(int from)
+	{
+		int index = from >>> 6;
+		if (index >= this.words.length)
+		{
+			return -1;
+		}
+
+		long word = this.words[index] & (-1L << from);
+		while (true)
+		{
+			if (word != 0)
+			{
+				int bit = (index << 6) + Long.numberOfTrailingZeros(word);
+				return bit < MaterialBitSet.MATERIALS.length ? bit : -1;
+			}
+
+			if (++index >= this.words.length)
+			{
+				return -1;
+			}
+
+			word = this.words[index];
+		}
+	}
+}
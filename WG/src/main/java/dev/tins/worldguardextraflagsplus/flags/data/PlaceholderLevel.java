@@ -0,0 +1,20 @@
+package dev.tins.worldguardextraflagsplus.flags.data;
+
+public record PlaceholderLevel(int threshold, Source source, String placeholder)
+{
+	public enum Source
+	{
+		XP,
+		PLACEHOLDER
+	}
+
+	public static PlaceholderLevel xp(int threshold)
+	{
+		return new PlaceholderLevel(threshold, Source.XP, null);
+	}
+
+	public static PlaceholderLevel placeholder(int threshold, String placeholder)
+	{
+		return new PlaceholderLevel(threshold, Source.PLACEHOLDER, placeholder);
+	}
+}
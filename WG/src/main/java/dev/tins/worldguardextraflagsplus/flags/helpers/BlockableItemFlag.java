@@ -4,21 +4,31 @@ import com.sk89q.worldguard.protection.flags.Flag;
 import com.sk89q.worldguard.protection.flags.FlagContext;
 import com.sk89q.worldguard.protection.flags.InvalidFlagFormat;
 
-import java.util.HashSet;
+import dev.tins.worldguardextraflagsplus.flags.data.MaterialBitSet;
+
+import org.bukkit.Material;
+
+import java.util.List;
 import java.util.Set;
 
-public class BlockableItemFlag extends Flag<String>
+public class BlockableItemFlag extends Flag<Material>
 {
 	// Hardcoded list of items that can be blocked by permit-completely flag
 	// TODO: Add more items in future updates
-	private static final Set<String> BLOCKABLE_ITEMS = new HashSet<>();
+	private static final List<String> BLOCKABLE_ITEM_NAMES = List.of("MACE", "FIREWORK_ROCKET", "WIND_CHARGE", "TOTEM_OF_UNDYING", "TRIDENT");
+
+	// Items missing on older server versions are left out
+	private static final MaterialBitSet BLOCKABLE_ITEMS = new MaterialBitSet();
 	static
 	{
-		BLOCKABLE_ITEMS.add("MACE");
-		BLOCKABLE_ITEMS.add("FIREWORK_ROCKET");
-		BLOCKABLE_ITEMS.add("WIND_CHARGE");
-		BLOCKABLE_ITEMS.add("TOTEM_OF_UNDYING");
-		BLOCKABLE_ITEMS.add("TRIDENT");
+		for (String name : BLOCKABLE_ITEM_NAMES)
+		{
+			Material material = Material.getMaterial(name);
+			if (material != null)
+			{
+				BLOCKABLE_ITEMS.add(material);
+			}
+		}
 	}
 
 	public BlockableItemFlag(String name)
@@ -27,13 +37,13 @@ public class BlockableItemFlag extends Flag<String>
 	}
 
 	@Override
-	public Object marshal(String o)
+	public Object marshal(Material o)
 	{
-		return o;
+		return o.name();
 	}
 
 	@Override
-	public String parseInput(FlagContext context) throws InvalidFlagFormat
+	public Material parseInput(FlagContext context) throws InvalidFlagFormat
 	{
 		String input = context.getUserInput().trim();
 		
@@ -43,36 +53,42 @@ public class BlockableItemFlag extends Flag<String>
 			throw new InvalidFlagFormat("Item name cannot be empty");
 		}
 		
-		// Convert to uppercase for comparison
-		String upperInput = input.toUpperCase();
-		
 		// Validate against hardcoded list
-		if (!BLOCKABLE_ITEMS.contains(upperInput))
+		Material material = Material.getMaterial(input.toUpperCase());
+		if (!isBlockable(material))
 		{
-			throw new InvalidFlagFormat("Invalid item '" + input + "'. Only the following items can be blocked: " + String.join(", ", BLOCKABLE_ITEMS));
+			throw new InvalidFlagFormat("Invalid item '" + input + "'. Only the following items can be blocked: " + String.join(", ", BLOCKABLE_ITEM_NAMES));
 		}
 		
-		return upperInput;
+		return material;
 	}
 
 	@Override
-	public String unmarshal(Object o)
+	public Material unmarshal(Object o)
 	{
 		if (o instanceof String)
 		{
-			String item = ((String) o).toUpperCase();
+			Material material = Material.getMaterial(((String) o).toUpperCase());
 			// Validate on unmarshal too (for config loading)
-			if (BLOCKABLE_ITEMS.contains(item))
+			if (isBlockable(material))
 			{
-				return item;
+				return material;
 			}
 		}
 		return null;
 	}
 
-	public static Set<String> getBlockableItems()
+	/**
+	 * Single bit test, lets callers skip the region lookup for every other item.
+	 */
+	public static boolean isBlockable(Material material)
+	{
+		return material != null && BLOCKABLE_ITEMS.contains(material);
+	}
+
+	public static Set<Material> getBlockableItems()
 	{
-		return new HashSet<>(BLOCKABLE_ITEMS);
+		return new MaterialBitSet(BLOCKABLE_ITEMS);
 	}
 }
 
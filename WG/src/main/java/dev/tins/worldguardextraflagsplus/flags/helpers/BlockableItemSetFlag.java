@@ -0,0 +1,40 @@
+package dev.tins.worldguardextraflagsplus.flags.helpers;
+
+import java.util.Set;
+
+import org.bukkit.Material;
+
+import com.sk89q.worldguard.protection.flags.FlagContext;
+import com.sk89q.worldguard.protection.flags.InvalidFlagFormat;
+
+import dev.tins.worldguardextraflagsplus.flags.data.MaterialBitSet;
+
+/**
+ * Blockable item set flag that stores its values as a {@link MaterialBitSet}.
+ * Keeps the clear and quoting rules of {@link CustomSetFlag}.
+ */
+public class BlockableItemSetFlag extends CustomSetFlag<Material>
+{
+	public BlockableItemSetFlag(String name)
+	{
+		super(name, new BlockableItemFlag(null));
+	}
+
+	@Override
+	public Set<Material> parseInput(FlagContext context) throws InvalidFlagFormat
+	{
+		return new MaterialBitSet(super.parseInput(context));
+	}
+
+	@Override
+	public Set<Material> unmarshal(Object o)
+	{
+		Set<Material> materials = super.unmarshal(o);
+		if (materials == null)
+		{
+			return null;
+		}
+
+		return new MaterialBitSet(materials);
+	}
+}
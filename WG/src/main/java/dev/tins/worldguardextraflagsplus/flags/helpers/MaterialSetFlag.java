@@ -0,0 +1,41 @@
+package dev.tins.worldguardextraflagsplus.flags.helpers;
+
+import java.util.Set;
+
+import org.bukkit.Material;
+
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.flags.FlagContext;
+import com.sk89q.worldguard.protection.flags.InvalidFlagFormat;
+import com.sk89q.worldguard.protection.flags.SetFlag;
+
+import dev.tins.worldguardextraflagsplus.flags.data.MaterialBitSet;
+
+/**
+ * Material set flag that stores its values as a {@link MaterialBitSet}.
+ */
+public class MaterialSetFlag extends SetFlag<Material>
+{
+	public MaterialSetFlag(String name, Flag<Material> subFlag)
+	{
+		super(name, subFlag);
+	}
+
+	@Override
+	public Set<Material> parseInput(FlagContext context) throws InvalidFlagFormat
+	{
+		return new MaterialBitSet(super.parseInput(context));
+	}
+
+	@Override
+	public Set<Material> unmarshal(Object o)
+	{
+		Set<Material> materials = super.unmarshal(o);
+		if (materials == null)
+		{
+			return null;
+		}
+
+		return new MaterialBitSet(materials);
+	}
+}
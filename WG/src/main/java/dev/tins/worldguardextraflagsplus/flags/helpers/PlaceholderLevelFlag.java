@@ -4,7 +4,9 @@ import com.sk89q.worldguard.protection.flags.Flag;
 import com.sk89q.worldguard.protection.flags.FlagContext;
 import com.sk89q.worldguard.protection.flags.InvalidFlagFormat;
 
-public class PlaceholderLevelFlag extends Flag<String>
+import dev.tins.worldguardextraflagsplus.flags.data.PlaceholderLevel;
+
+public class PlaceholderLevelFlag extends Flag<PlaceholderLevel>
 {
 	public PlaceholderLevelFlag(String name)
 	{
@@ -12,13 +14,13 @@ public class PlaceholderLevelFlag extends Flag<String>
 	}
 
 	@Override
-	public Object marshal(String o)
+	public Object marshal(PlaceholderLevel o)
 	{
-		return o;
+		return o.threshold() + " " + (o.source() == PlaceholderLevel.Source.XP ? "XP" : o.placeholder()); // Store as: "threshold source"
 	}
 
 	@Override
-	public String parseInput(FlagContext context) throws InvalidFlagFormat
+	public PlaceholderLevel parseInput(FlagContext context) throws InvalidFlagFormat
 	{
 		String input = context.getUserInput().trim();
 		
@@ -47,23 +49,57 @@ public class PlaceholderLevelFlag extends Flag<String>
 		
 		// Validate source (second argument) is either "XP" or a placeholder
 		String source = parts[1].trim();
-		if (!source.equalsIgnoreCase("XP") && (!source.startsWith("%") || !source.endsWith("%")))
+		if (!source.equalsIgnoreCase("XP") && (!source.startsWith("%") || !source.endsWith("%") || source.length() <= 2))
 		{
 			throw new InvalidFlagFormat("Source must be either 'XP' or a PlaceholderAPI placeholder (e.g., %battlepass_tier%). Got: '" + source + "'");
 		}
 		
-		return input; // Store as: "threshold source"
+		return PlaceholderLevelFlag.parse(input);
 	}
 
 	@Override
-	public String unmarshal(Object o)
+	public PlaceholderLevel unmarshal(Object o)
 	{
 		if (o == null)
 		{
 			return null;
 		}
 		
-		return o.toString();
+		return PlaceholderLevelFlag.parse(o.toString());
 	}
-}
 
+	/**
+	 * Parses "<threshold> <source>", returns null if the value is invalid.
+	 */
+	private static PlaceholderLevel parse(String value)
+	{
+		String[] parts = value.trim().split("\\s+", 2);
+		if (parts.length != 2)
+		{
+			return null;
+		}
+		
+		int threshold;
+		try
+		{
+			threshold = Integer.parseInt(parts[0].trim());
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+		
+		String source = parts[1].trim();
+		if (source.equalsIgnoreCase("XP"))
+		{
+			return PlaceholderLevel.xp(threshold);
+		}
+		
+		if (source.startsWith("%") && source.endsWith("%") && source.length() > 2)
+		{
+			return PlaceholderLevel.placeholder(threshold, source);
+		}
+		
+		return null;
+	}
+}
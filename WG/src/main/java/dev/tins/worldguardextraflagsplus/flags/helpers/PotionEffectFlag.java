@@ -14,7 +14,7 @@ public class PotionEffectFlag extends Flag<PotionEffect>
 	//So 20 * 15 gives us 15s of the potion effect
 	//This avoid the effect running out indication
 	//Also we add extra 19 ticks (almost a second) to avoid the timer constantly going from 15s to 14s and back (Its annoying)
-	private static final int POTION_EFFECT_DURATION = 20 * 15 + 19;
+	public static final int POTION_EFFECT_DURATION = 20 * 15 + 19;
 	
 	public PotionEffectFlag(String name)
 	{
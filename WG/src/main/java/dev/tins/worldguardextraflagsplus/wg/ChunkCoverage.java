@@ -0,0 +1,181 @@
+package dev.tins.worldguardextraflagsplus.wg;
+
+/**
+ * Open addressing hash map from chunk key to the number of regions covering the chunk, without boxing.
+ * Linear probing with backward shift deletion, so removals leave no tombstones behind.
+ * Not thread safe, readers on other threads get a {@link #copy()}.
+ */
+class ChunkCoverage
+{
+	private static final int MIN_CAPACITY = 16;
+
+	// Chunk 0, 0 has the key used to mark free slots, its count lives outside the table
+	private static final long FREE = 0L;
+
+	private long[] keys;
+	private int[] counts;
+	private int mask;
+
+	private int size;
+	private int freeKeyCount;
+
+	ChunkCoverage()
+	{
+		this.allocate(ChunkCoverage.MIN_CAPACITY);
+	}
+
+	private ChunkCoverage(ChunkCoverage other)
+	{
+		this.keys = other.keys.clone();
+		this.counts = other.counts.clone();
+		this.mask = other.mask;
+		this.size = other.size;
+		this.freeKeyCount = other.freeKeyCount;
+	}
+
+	boolean contains(long key)
+	{
+		if (key == ChunkCoverage.FREE)
+		{
+			return this.freeKeyCount > 0;
+		}
+
+		long[] keys = this.keys;
+		for (int slot = ChunkCoverage.slot(key, this.mask); ; slot = (slot + 1) & this.mask)
+		{
+			long current = keys[slot];
+			if (current == key)
+			{
+				return true;
+			}
+			else if (current == ChunkCoverage.FREE)
+			{
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return The count after adding one, 1 when the chunk was not covered yet
+	 */
+	int increment(long key)
+	{
+		if (key == ChunkCoverage.FREE)
+		{
+			return ++this.freeKeyCount;
+		}
+
+		int slot = ChunkCoverage.slot(key, this.mask);
+		while (this.keys[slot] != ChunkCoverage.FREE)
+		{
+			if (this.keys[slot] == key)
+			{
+				return ++this.counts[slot];
+			}
+
+			slot = (slot + 1) & this.mask;
+		}
+
+		this.keys[slot] = key;
+		this.counts[slot] = 1;
+
+		// Keeps the load factor at or below a half
+		if (++this.size > (this.mask + 1) >> 1)
+		{
+			this.rehash((this.mask + 1) << 1);
+		}
+
+		return 1;
+	}
+
+	/**
+	 * @return The count after removing one, 0 when the chunk is no longer covered
+	 */
+	int decrement(long key)
+	{
+		if (key == ChunkCoverage.FREE)
+		{
+			return this.freeKeyCount > 0 ? --this.freeKeyCount : 0;
+		}
+
+		for (int slot = ChunkCoverage.slot(key, this.mask); this.keys[slot] != ChunkCoverage.FREE; slot = (slot + 1) & this.mask)
+		{
+			if (this.keys[slot] == key)
+			{
+				if (--this.counts[slot] > 0)
+				{
+					return this.counts[slot];
+				}
+
+				this.remove(slot);
+				return 0;
+			}
+		}
+
+		return 0;
+	}
+
+	ChunkCoverage copy()
+	{
+		return new ChunkCoverage(this);
+	}
+
+	private void remove(int slot)
+	{
+		this.size--;
+
+		// Moves the following entries of the probe sequence back into the gap
+		int gap = slot;
+		for (int next = (gap + 1) & this.mask; this.keys[next] != ChunkCoverage.FREE; next = (next + 1) & this.mask)
+		{
+			int home = ChunkCoverage.slot(this.keys[next], this.mask);
+			if (((next - home) & this.mask) >= ((next - gap) & this.mask))
+			{
+				this.keys[gap] = this.keys[next];
+				this.counts[gap] = this.counts[next];
+				gap = next;
+			}
+		}
+
+		this.keys[gap] = ChunkCoverage.FREE;
+		this.counts[gap] = 0;
+	}
+
+	private void rehash(int capacity)
+	{
+		long[] keys = this.keys;
+		int[] counts = this.counts;
+
+		this.allocate(capacity);
+
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i] != ChunkCoverage.FREE)
+			{
+				int slot = ChunkCoverage.slot(keys[i], this.mask);
+				while (this.keys[slot] != ChunkCoverage.FREE)
+				{
+					slot = (slot + 1) & this.mask;
+				}
+
+				this.keys[slot] = keys[i];
+				this.counts[slot] = counts[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		this.keys = new long[capacity];
+		this.counts = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private static int slot(long key, int mask)
+	{
+		// Neighbouring chunks only differ in the low bits of either half, mix them all
+		long hash = key * 0x9E3779B97F4A7C15L;
+
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
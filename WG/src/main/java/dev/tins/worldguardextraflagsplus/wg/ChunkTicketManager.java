@@ -0,0 +1,397 @@
+package dev.tins.worldguardextraflagsplus.wg;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+
+import dev.tins.worldguardextraflagsplus.flags.Flags;
+
+/**
+ * Keeps the chunks of regions with chunk-unload set to deny loaded with plugin chunk tickets.
+ * An index of the chunks every such region covers is diffed against the regions whenever they change,
+ * so only chunks of added, moved or removed regions are touched and tickets are released once no region needs them.
+ * Chunks are loaded a batch per tick, asynchronously where the server supports it (Paper's getChunkAtAsync).
+ * Index, ticket sets and tickets are only changed on the main thread (the global region thread on Folia).
+ * Chunk unload events read a copy of the index published after every change and hand covered chunks over to that thread.
+ */
+public class ChunkTicketManager implements RegionChangeTracker.Listener
+{
+	private static final int CHUNKS_PER_TICK = 16;
+
+	// Paper only, null on Spigot where chunks are loaded synchronously instead
+	private static final Method GET_CHUNK_AT_ASYNC = ChunkTicketManager.findGetChunkAtAsync();
+
+	private final Plugin plugin;
+	private final RegionContainer regionContainer;
+
+	private final Map<UUID, WorldTickets> worlds = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+	// Chunk events and chunk loads complete on region threads on Folia
+	private final boolean folia;
+
+	public ChunkTicketManager(Plugin plugin, RegionContainer regionContainer)
+	{
+		this.plugin = plugin;
+		this.regionContainer = regionContainer;
+
+		this.folia = WorldGuardUtils.getScheduler().getImpl().isFolia();
+	}
+
+	/**
+	 * Indexes the regions of a world and starts loading their chunks.
+	 */
+	public void load(World world)
+	{
+		this.update(world);
+	}
+
+	/**
+	 * Forgets a world, its tickets are gone with it.
+	 */
+	public void unload(World world)
+	{
+		this.worlds.remove(world.getUID());
+	}
+
+	/**
+	 * Diffs the regions of every loaded world again, after WorldGuard reloaded its regions.
+	 */
+	public void reload()
+	{
+		for (World world : Bukkit.getWorlds())
+		{
+			this.update(world);
+		}
+	}
+
+	@Override
+	public void onRegionsChanged(String worldName)
+	{
+		// Polled off the main thread
+		WorldGuardUtils.getScheduler().runNextTick(task -> {
+			World world = Bukkit.getWorld(worldName);
+			if (world != null)
+			{
+				this.update(world);
+			}
+		});
+	}
+
+	/**
+	 * Tickets a covered chunk that is about to unload before its turn in the load queue came.
+	 * On Folia the ticket is added on the global region thread, the chunk may unload and load again in between.
+	 */
+	public void onChunkUnload(World world, int chunkX, int chunkZ)
+	{
+		WorldTickets tickets = this.worlds.get(world.getUID());
+		if (tickets == null)
+		{
+			return;
+		}
+
+		// Nearly every unloading chunk is not covered, this lookup is all they cost
+		long key = ChunkTicketManager.chunkKey(chunkX, chunkZ);
+		if (tickets.published.contains(key))
+		{
+			this.runOnOwningThread(() -> {
+				tickets.pending.remove(key);
+
+				this.addTicket(world, tickets, key);
+			});
+		}
+	}
+
+	private void update(World world)
+	{
+		RegionManager regionManager = this.regionContainer.get(BukkitAdapter.adapt(world));
+		if (regionManager == null)
+		{
+			return;
+		}
+
+		WorldTickets tickets = this.worlds.computeIfAbsent(world.getUID(), k -> new WorldTickets());
+		boolean changed = false;
+
+		Map<String, TrackedRegion> current = new HashMap<>();
+		for (ProtectedRegion region : regionManager.getRegions().values())
+		{
+			if (region.getFlag(Flags.CHUNK_UNLOAD) == StateFlag.State.DENY)
+			{
+				TrackedRegion tracked = tickets.regions.get(region.getId());
+				if (tracked == null || !tracked.covers(region))
+				{
+					tracked = new TrackedRegion(region.getMinimumPoint(), region.getMaximumPoint());
+				}
+
+				current.put(region.getId(), tracked);
+			}
+		}
+
+		// Release first, a moved region may still need some of its old chunks
+		Set<String> moved = new HashSet<>();
+		Iterator<Map.Entry<String, TrackedRegion>> previous = tickets.regions.entrySet().iterator();
+		while (previous.hasNext())
+		{
+			Map.Entry<String, TrackedRegion> entry = previous.next();
+			if (current.get(entry.getKey()) != entry.getValue())
+			{
+				if (current.containsKey(entry.getKey()))
+				{
+					moved.add(entry.getKey());
+
+					this.plugin.getLogger().fine("Moving chunk tickets for region " + entry.getKey() + " located in " + world.getName() + " due to its bounds having changed");
+				}
+				else
+				{
+					this.plugin.getLogger().info("Releasing chunks for region " + entry.getKey() + " located in " + world.getName() + " due to chunk-unload flag no longer being deny");
+				}
+
+				this.release(world, tickets, entry.getValue());
+				previous.remove();
+				changed = true;
+			}
+		}
+
+		for (Map.Entry<String, TrackedRegion> entry : current.entrySet())
+		{
+			if (tickets.regions.putIfAbsent(entry.getKey(), entry.getValue()) == null)
+			{
+				if (!moved.contains(entry.getKey()))
+				{
+					this.plugin.getLogger().info("Loading chunks for region " + entry.getKey() + " located in " + world.getName() + " due to chunk-unload flag being deny");
+				}
+
+				this.acquire(tickets, entry.getValue());
+				changed = true;
+			}
+		}
+
+		if (changed)
+		{
+			tickets.published = tickets.coverage.copy();
+		}
+
+		this.scheduleDrain();
+	}
+
+	private void acquire(WorldTickets tickets, TrackedRegion region)
+	{
+		for (int x = region.minChunkX(); x <= region.maxChunkX(); x++)
+		{
+			for (int z = region.minChunkZ(); z <= region.maxChunkZ(); z++)
+			{
+				long key = ChunkTicketManager.chunkKey(x, z);
+				if (tickets.coverage.increment(key) == 1 && !tickets.ticketed.contains(key))
+				{
+					tickets.pending.add(key);
+				}
+			}
+		}
+	}
+
+	private void release(World world, WorldTickets tickets, TrackedRegion region)
+	{
+		for (int x = region.minChunkX(); x <= region.maxChunkX(); x++)
+		{
+			for (int z = region.minChunkZ(); z <= region.maxChunkZ(); z++)
+			{
+				long key = ChunkTicketManager.chunkKey(x, z);
+				if (tickets.coverage.decrement(key) > 0)
+				{
+					continue;
+				}
+
+				tickets.pending.remove(key);
+
+				if (tickets.ticketed.remove(key))
+				{
+					world.removePluginChunkTicket(x, z, this.plugin);
+				}
+			}
+		}
+	}
+
+	private void scheduleDrain()
+	{
+		if (!WorldGuardUtils.isPluginEnabled() || !this.drainScheduled.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		WorldGuardUtils.getScheduler().runNextTick(task -> this.drain());
+	}
+
+	private void drain()
+	{
+		this.drainScheduled.set(false);
+
+		int budget = ChunkTicketManager.CHUNKS_PER_TICK;
+		boolean remaining = false;
+
+		for (Map.Entry<UUID, WorldTickets> entry : this.worlds.entrySet())
+		{
+			WorldTickets tickets = entry.getValue();
+			if (tickets.pending.isEmpty())
+			{
+				continue;
+			}
+
+			World world = Bukkit.getWorld(entry.getKey());
+			if (world == null)
+			{
+				tickets.pending.clear();
+				continue;
+			}
+
+			Iterator<Long> pending = tickets.pending.iterator();
+			while (pending.hasNext() && budget > 0)
+			{
+				long key = pending.next();
+				pending.remove();
+				budget--;
+
+				this.loadChunk(world, tickets, key);
+			}
+
+			remaining |= !tickets.pending.isEmpty();
+		}
+
+		if (remaining)
+		{
+			this.scheduleDrain();
+		}
+	}
+
+	private void loadChunk(World world, WorldTickets tickets, long key)
+	{
+		int x = (int) (key >> 32);
+		int z = (int) key;
+
+		if (ChunkTicketManager.GET_CHUNK_AT_ASYNC == null || world.isChunkLoaded(x, z))
+		{
+			this.addTicket(world, tickets, key);
+			return;
+		}
+
+		try
+		{
+			CompletableFuture<?> future = (CompletableFuture<?>) ChunkTicketManager.GET_CHUNK_AT_ASYNC.invoke(world, x, z);
+
+			// The chunk may have been released while loading
+			future.thenAccept(chunk -> this.runOnOwningThread(() -> this.addTicket(world, tickets, key)));
+		}
+		catch (IllegalAccessException | InvocationTargetException e)
+		{
+			this.plugin.getLogger().log(Level.WARNING, "Failed to load chunk " + x + ", " + z + " in " + world.getName() + " asynchronously", e);
+
+			this.addTicket(world, tickets, key);
+		}
+	}
+
+	private void addTicket(World world, WorldTickets tickets, long key)
+	{
+		if (this.worlds.get(world.getUID()) != tickets || !tickets.coverage.contains(key) || !tickets.ticketed.add(key))
+		{
+			return;
+		}
+
+		world.addPluginChunkTicket((int) (key >> 32), (int) key, this.plugin);
+	}
+
+	/**
+	 * Runs the task on the thread owning the index and ticket sets, right away when already on it.
+	 */
+	private void runOnOwningThread(Runnable task)
+	{
+		if (this.folia)
+		{
+			WorldGuardUtils.getScheduler().runNextTick(wrappedTask -> task.run());
+		}
+		else
+		{
+			task.run();
+		}
+	}
+
+	private static long chunkKey(int chunkX, int chunkZ)
+	{
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	private static Method findGetChunkAtAsync()
+	{
+		try
+		{
+			return World.class.getMethod("getChunkAtAsync", int.class, int.class);
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	private static class WorldTickets
+	{
+		private final Map<String, TrackedRegion> regions = new HashMap<>();
+
+		// Number of deny regions covering a chunk
+		private final ChunkCoverage coverage = new ChunkCoverage();
+
+		// Read by chunk unload events, replaced after every change of the coverage
+		private volatile ChunkCoverage published = new ChunkCoverage();
+
+		private final Set<Long> ticketed = new HashSet<>();
+		private final Set<Long> pending = new LinkedHashSet<>();
+	}
+
+	private record TrackedRegion(BlockVector3 min, BlockVector3 max)
+	{
+		private boolean covers(ProtectedRegion region)
+		{
+			return this.min.equals(region.getMinimumPoint()) && this.max.equals(region.getMaximumPoint());
+		}
+
+		private int minChunkX()
+		{
+			return this.min.getBlockX() >> 4;
+		}
+
+		private int maxChunkX()
+		{
+			return this.max.getBlockX() >> 4;
+		}
+
+		private int minChunkZ()
+		{
+			return this.min.getBlockZ() >> 4;
+		}
+
+		private int maxChunkZ()
+		{
+			return this.max.getBlockZ() >> 4;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package dev.tins.worldguardextraflagsplus.wg;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.entity.Player;
+
+import com.sk89q.worldedit.bukkit.BukkitPlayer;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+
+/**
+ * Keeps one WorldGuard wrapper per online player, so event handlers don't allocate a new one per event.
+ * Players are added on join and removed on quit, anyone else (like NPCs) gets a fresh wrapper every time.
+ */
+public class LocalPlayerCache
+{
+	private final WorldGuardPlugin worldGuardPlugin;
+
+	private final Map<UUID, LocalPlayer> players = new ConcurrentHashMap<>();
+
+	public LocalPlayerCache(WorldGuardPlugin worldGuardPlugin)
+	{
+		this.worldGuardPlugin = worldGuardPlugin;
+	}
+
+	public LocalPlayer wrapPlayer(Player player)
+	{
+		LocalPlayer localPlayer = this.players.get(player.getUniqueId());
+
+		// A wrapper of an older player object, like one left behind by a quick rejoin
+		if (!(localPlayer instanceof BukkitPlayer bukkitPlayer) || bukkitPlayer.getPlayer() != player)
+		{
+			return this.worldGuardPlugin.wrapPlayer(player);
+		}
+
+		return localPlayer;
+	}
+
+	public void add(Player player)
+	{
+		this.players.put(player.getUniqueId(), this.worldGuardPlugin.wrapPlayer(player));
+	}
+
+	public void remove(UUID playerId)
+	{
+		this.players.remove(playerId);
+	}
+}
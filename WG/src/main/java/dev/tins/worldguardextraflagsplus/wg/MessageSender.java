@@ -0,0 +1,27 @@
+package dev.tins.worldguardextraflagsplus.wg;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Sends the configurable messages from messages.yml.
+ * Messages live in the Spigot module, which registers its implementation with
+ * {@link WorldGuardUtils#registerMessageSender(MessageSender)} on enable, so handlers can send them directly.
+ */
+@FunctionalInterface
+public interface MessageSender
+{
+	/**
+	 * Sends nothing, used until a sender is registered.
+	 */
+	MessageSender NONE = (player, key, replacements) -> false;
+
+	/**
+	 * Sends a message to a player unless its cooldown is still running.
+	 *
+	 * @param player The player to send the message to
+	 * @param key The message key in messages.yml
+	 * @param replacements Pairs of placeholder name and value
+	 * @return Whether the message was sent
+	 */
+	boolean sendMessageWithCooldown(Player player, String key, String... replacements);
+}
@@ -0,0 +1,107 @@
+package dev.tins.worldguardextraflagsplus.wg;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+
+/**
+ * Detects region changes per world.
+ * WorldGuard has no region change event, so the loaded region managers are polled
+ * and a cheap revision (region identity, priority, parent and flags) is compared
+ * against the previous poll. Listeners are notified with the world name.
+ * Region commands trigger a poll on the next tick, changes made any other way (like by other plugins through the API)
+ * are only seen by the periodic poll, so flag checks may use the old values until then (a second by default).
+ * A poll hashes the flags of every region, its cost grows with regions times flags even when nothing changed.
+ */
+public class RegionChangeTracker
+{
+	public interface Listener
+	{
+		void onRegionsChanged(String worldName);
+	}
+
+	private final RegionContainer regionContainer;
+
+	private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	public RegionChangeTracker(RegionContainer regionContainer)
+	{
+		this.regionContainer = regionContainer;
+	}
+
+	public void addListener(Listener listener)
+	{
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Compares the current revision of every loaded world against the last poll.
+	 * Safe to call off the main thread, region managers are backed by concurrent indexes.
+	 * Polls don't overlap, an older revision never replaces a newer one.
+	 */
+	public synchronized void poll()
+	{
+		Set<String> seen = new HashSet<>();
+
+		for (RegionManager regionManager : this.regionContainer.getLoaded())
+		{
+			String worldName = regionManager.getName();
+			seen.add(worldName);
+
+			long revision = RegionChangeTracker.computeRevision(regionManager);
+
+			Long previous = this.revisions.put(worldName, revision);
+			if (previous != null && previous != revision)
+			{
+				this.fire(worldName);
+			}
+		}
+
+		// Worlds that got unloaded since the last poll
+		this.revisions.keySet().removeIf(worldName ->
+		{
+			if (seen.contains(worldName))
+			{
+				return false;
+			}
+
+			this.fire(worldName);
+			return true;
+		});
+	}
+
+	private void fire(String worldName)
+	{
+		for (Listener listener : this.listeners)
+		{
+			listener.onRegionsChanged(worldName);
+		}
+	}
+
+	private static long computeRevision(RegionManager regionManager)
+	{
+		Map<String, ProtectedRegion> regions = regionManager.getRegions();
+
+		// Order independent sum, regions are stored in a hash index
+		long revision = regions.size();
+		for (ProtectedRegion region : regions.values())
+		{
+			long hash = System.identityHashCode(region);
+			hash = hash * 31 + region.getPriority();
+			hash = hash * 31 + System.identityHashCode(region.getParent());
+			hash = hash * 31 + region.getFlags().hashCode();
+
+			revision += hash * 0x9E3779B97F4A7C15L;
+		}
+
+		return revision;
+	}
+}
@@ -0,0 +1,195 @@
+package dev.tins.worldguardextraflagsplus.wg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per caller statistics of the tasks submitted through the {@link WorldGuardUtils.SchedulerWrapper}.
+ * Counters and histograms are striped, recording a task is a couple of uncontended adds.
+ * Histograms use power of two buckets, percentiles are reported as the upper bound of their bucket.
+ * Tasks are attributed to the owner of the submitted lambda or key, the owner is resolved once per class
+ * and every lambda or key class of an owner shares its stats.
+ */
+public class SchedulerStats
+{
+	private final Map<Class<?>, TaskStats> owners = new ConcurrentHashMap<>();
+
+	// Lambda and key classes already resolved to their owner's stats
+	private final Map<Class<?>, TaskStats> types = new ConcurrentHashMap<>();
+
+	/**
+	 * Stats of the owner of the given type, either the handler keying a task or the lambda submitted as task.
+	 * A lookup of an already seen type, nothing is resolved on the submit path.
+	 */
+	TaskStats get(Class<?> type)
+	{
+		TaskStats stats = this.types.get(type);
+		if (stats == null)
+		{
+			stats = this.types.computeIfAbsent(type, key -> this.owners.computeIfAbsent(SchedulerStats.findOwner(key), TaskStats::new));
+		}
+
+		return stats;
+	}
+
+	public List<Snapshot> snapshot()
+	{
+		List<Snapshot> snapshots = new ArrayList<>();
+		for (TaskStats stats : this.owners.values())
+		{
+			snapshots.add(stats.snapshot());
+		}
+
+		snapshots.sort(Comparator.comparingLong(Snapshot::submitted).reversed());
+		return snapshots;
+	}
+
+	public void reset()
+	{
+		// Owners first, a type resolved in between is dropped and resolved again
+		this.owners.clear();
+		this.types.clear();
+	}
+
+	/**
+	 * The class declaring a lambda or method reference, or the type itself for any other class.
+	 */
+	private static Class<?> findOwner(Class<?> type)
+	{
+		String name = type.getName();
+
+		int lambda = name.indexOf("$$Lambda");
+		if (lambda < 0)
+		{
+			return type;
+		}
+
+		try
+		{
+			return Class.forName(name.substring(0, lambda), false, type.getClassLoader());
+		}
+		catch (ClassNotFoundException e)
+		{
+			return type;
+		}
+	}
+
+	/**
+	 * @param owner Simple name of the submitting class
+	 * @param submitted Tasks submitted
+	 * @param executed Task executions, repeating tasks count every run
+	 * @param averageLatencyNanos Time between submit and execution, repeating tasks are not included
+	 */
+	public record Snapshot(String owner, long submitted, long executed,
+			long averageLatencyNanos, long p50LatencyNanos, long p99LatencyNanos,
+			long averageExecutionNanos, long p50ExecutionNanos, long p99ExecutionNanos)
+	{
+	}
+
+	static class TaskStats
+	{
+		private final String owner;
+
+		private final LongAdder submitted = new LongAdder();
+		private final LongAdder executed = new LongAdder();
+
+		private final Histogram latency = new Histogram();
+		private final Histogram execution = new Histogram();
+
+		private TaskStats(Class<?> owner)
+		{
+			this.owner = owner.getSimpleName().isEmpty() ? owner.getName() : owner.getSimpleName();
+		}
+
+		void recordSubmit()
+		{
+			this.submitted.increment();
+		}
+
+		/**
+		 * @param latencyNanos Time between submit and execution, negative for repeating tasks
+		 */
+		void recordExecution(long latencyNanos, long executionNanos)
+		{
+			this.executed.increment();
+
+			if (latencyNanos >= 0)
+			{
+				this.latency.record(latencyNanos);
+			}
+
+			this.execution.record(executionNanos);
+		}
+
+		private Snapshot snapshot()
+		{
+			return new Snapshot(this.owner, this.submitted.sum(), this.executed.sum(),
+					this.latency.average(), this.latency.percentile(0.5), this.latency.percentile(0.99),
+					this.execution.average(), this.execution.percentile(0.5), this.execution.percentile(0.99));
+		}
+	}
+
+	private static class Histogram
+	{
+		private final LongAdder[] buckets = new LongAdder[64];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder total = new LongAdder();
+
+		private Histogram()
+		{
+			for (int i = 0; i < this.buckets.length; i++)
+			{
+				this.buckets[i] = new LongAdder();
+			}
+		}
+
+		private void record(long nanos)
+		{
+			this.buckets[63 - Long.numberOfLeadingZeros(Math.max(1L, nanos))].increment();
+			this.count.increment();
+			this.total.add(nanos);
+		}
+
+		private long average()
+		{
+			long count = this.count.sum();
+
+			return count > 0 ? this.total.sum() / count : 0;
+		}
+
+		private long percentile(double percentile)
+		{
+			long[] counts = new long[this.buckets.length];
+
+			long count = 0;
+			for (int i = 0; i < counts.length; i++)
+			{
+				counts[i] = this.buckets[i].sum();
+				count += counts[i];
+			}
+
+			if (count == 0)
+			{
+				return 0;
+			}
+
+			long rank = (long) Math.ceil(count * percentile);
+
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++)
+			{
+				seen += counts[i];
+				if (seen >= rank)
+				{
+					return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+				}
+			}
+
+			return Long.MAX_VALUE;
+		}
+	}
+}
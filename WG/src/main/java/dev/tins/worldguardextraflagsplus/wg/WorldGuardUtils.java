@@ -1,7 +1,14 @@
 package dev.tins.worldguardextraflagsplus.wg;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 import org.bukkit.entity.Player;
 import org.bukkit.metadata.FixedMetadataValue;
@@ -18,11 +25,21 @@ public class WorldGuardUtils
 	private static FoliaLib foliaLib;
 	private static SchedulerWrapper schedulerWrapper;
 	private static Plugin plugin;
+	private static volatile MessageSender messageSender = MessageSender.NONE;
 	
 	public static void initializeScheduler(Plugin plugin)
 	{
-		WorldGuardUtils.foliaLib = new FoliaLib(plugin);
-		WorldGuardUtils.schedulerWrapper = new SchedulerWrapper(foliaLib);
+		WorldGuardUtils.initializeScheduler(plugin, new FoliaLib(plugin));
+	}
+
+	/**
+	 * Uses the given FoliaLib instance instead of detecting the server implementation.
+	 * Lets headless environments (like the benchmarks) run tasks on a stub scheduler.
+	 */
+	public static void initializeScheduler(Plugin plugin, FoliaLib foliaLib)
+	{
+		WorldGuardUtils.foliaLib = foliaLib;
+		WorldGuardUtils.schedulerWrapper = new SchedulerWrapper(foliaLib, plugin);
 		WorldGuardUtils.plugin = plugin;
 	}
 	
@@ -36,15 +53,35 @@ public class WorldGuardUtils
 		return plugin != null && plugin.isEnabled();
 	}
 	
+	/**
+	 * Registers the sender of the messages from messages.yml.
+	 */
+	public static void registerMessageSender(MessageSender messageSender)
+	{
+		WorldGuardUtils.messageSender = messageSender;
+	}
+	
+	public static MessageSender getMessageSender()
+	{
+		return messageSender;
+	}
+	
 	public static class SchedulerWrapper
 	{
 		private final FoliaLib foliaLib;
 		private final com.tcoded.folialib.impl.ServerImplementation scheduler;
+		private final Plugin plugin;
 		
-		private SchedulerWrapper(FoliaLib foliaLib)
+		// Pending mutations per entity, see queueAtEntity
+		private final Map<UUID, Mailbox> mailboxes = new ConcurrentHashMap<>();
+		
+		private final SchedulerStats stats = new SchedulerStats();
+		
+		private SchedulerWrapper(FoliaLib foliaLib, Plugin plugin)
 		{
 			this.foliaLib = foliaLib;
 			this.scheduler = foliaLib.getScheduler();
+			this.plugin = plugin;
 		}
 		
 		public FoliaLib getImpl()
@@ -67,6 +104,16 @@ public class WorldGuardUtils
 			return scheduler;
 		}
 		
+		/**
+		 * Returns the task statistics per submitting class of every task run through this wrapper.
+		 * 
+		 * @return The scheduler statistics
+		 */
+		public SchedulerStats getStats()
+		{
+			return stats;
+		}
+		
 		/**
 		 * Runs a task at the entity's thread.
 		 * On Folia: runs on EntityScheduler (appropriate for the entity)
@@ -77,7 +124,121 @@ public class WorldGuardUtils
 		 */
 		public void runAtEntity(org.bukkit.entity.Entity entity, java.util.function.Consumer<com.tcoded.folialib.wrapper.task.WrappedTask> task)
 		{
-			scheduler.runAtEntity(entity, task);
+			scheduler.runAtEntity(entity, this.instrument(task));
+		}
+		
+		/**
+		 * Queues a mutation in the entity's mailbox.
+		 * Everything queued before the mailbox is dispatched runs in a single entity task, in queue order.
+		 * A mutation replaces the pending one with the same key, so only the latest state gets applied.
+		 * On Folia: runs on EntityScheduler
+		 * On Spigot/Paper: runs on main thread
+		 * 
+		 * @param entity The entity to run the mutation for
+		 * @param key Identifies the mutation, usually the handler queueing it
+		 * @param mutation The mutation to run
+		 */
+		public void queueAtEntity(org.bukkit.entity.Entity entity, Object key, java.lang.Runnable mutation)
+		{
+			this.queueAtEntity(entity, key, mutation, this.stats.get(key.getClass()));
+		}
+		
+		/**
+		 * Queues a mutation in the entity's mailbox that never replaces or gets replaced by another one.
+		 * 
+		 * @param entity The entity to run the mutation for
+		 * @param mutation The mutation to run
+		 */
+		public void queueAtEntity(org.bukkit.entity.Entity entity, java.lang.Runnable mutation)
+		{
+			// Keyless mutations are attributed to the class declaring them
+			this.queueAtEntity(entity, new Object(), mutation, this.stats.get(mutation.getClass()));
+		}
+		
+		private void queueAtEntity(org.bukkit.entity.Entity entity, Object key, java.lang.Runnable mutation, SchedulerStats.TaskStats taskStats)
+		{
+			Mailbox mailbox = this.mailboxes.computeIfAbsent(entity.getUniqueId(), k -> new Mailbox());
+			
+			// Replaced mutations count as submitted but never as executed
+			taskStats.recordSubmit();
+			
+			synchronized (mailbox)
+			{
+				// Moves a replaced mutation to the back, it has to see the mutations queued before it
+				mailbox.pending.remove(key);
+				mailbox.pending.put(key, new QueuedMutation(mutation, taskStats, System.nanoTime()));
+				
+				if (mailbox.scheduled)
+				{
+					return;
+				}
+				
+				mailbox.scheduled = true;
+			}
+			
+			// A retired task (entity removed, player quit) drops the mailbox, otherwise it stays scheduled forever
+			UUID entityId = entity.getUniqueId();
+			scheduler.runAtEntityWithFallback(entity, task -> this.dispatch(mailbox), () -> this.retire(entityId, mailbox));
+		}
+		
+		/**
+		 * Drops the entity's mailbox and everything still pending in it.
+		 * Has to be called when a player quits, mutations queued after that get dropped once their task is retired.
+		 * 
+		 * @param entityId The UUID of the entity
+		 */
+		public void clearMailbox(UUID entityId)
+		{
+			Mailbox mailbox = this.mailboxes.remove(entityId);
+			if (mailbox != null)
+			{
+				synchronized (mailbox)
+				{
+					mailbox.pending.clear();
+				}
+			}
+		}
+		
+		private void retire(UUID entityId, Mailbox mailbox)
+		{
+			synchronized (mailbox)
+			{
+				mailbox.pending.clear();
+				mailbox.scheduled = false;
+			}
+			
+			// Only this mailbox, a rejoined player may already have a new one
+			this.mailboxes.remove(entityId, mailbox);
+		}
+		
+		private void dispatch(Mailbox mailbox)
+		{
+			List<QueuedMutation> mutations;
+			synchronized (mailbox)
+			{
+				mutations = new ArrayList<>(mailbox.pending.values());
+				
+				mailbox.pending.clear();
+				mailbox.scheduled = false;
+			}
+			
+			for (QueuedMutation mutation : mutations)
+			{
+				long start = System.nanoTime();
+				try
+				{
+					mutation.mutation().run();
+				}
+				catch (RuntimeException e)
+				{
+					// One failing mutation must not drop the others
+					this.plugin.getLogger().log(Level.SEVERE, "Failed to run a queued entity task", e);
+				}
+				finally
+				{
+					mutation.stats().recordExecution(start - mutation.queuedAt(), System.nanoTime() - start);
+				}
+			}
 		}
 		
 		/**
@@ -92,7 +253,7 @@ public class WorldGuardUtils
 		 */
 		public void runNextTick(java.util.function.Consumer<com.tcoded.folialib.wrapper.task.WrappedTask> task)
 		{
-			scheduler.runNextTick(task);
+			scheduler.runNextTick(this.instrument(task));
 		}
 		
 		/**
@@ -108,7 +269,7 @@ public class WorldGuardUtils
 		 */
 		public com.tcoded.folialib.wrapper.task.WrappedTask runAtEntityTimer(org.bukkit.entity.Entity entity, java.lang.Runnable runnable, long delayTicks, long periodTicks)
 		{
-			return scheduler.runAtEntityTimer(entity, runnable, delayTicks, periodTicks);
+			return scheduler.runAtEntityTimer(entity, this.instrument(runnable), delayTicks, periodTicks);
 		}
 		
 		/**
@@ -125,7 +286,70 @@ public class WorldGuardUtils
 		 */
 		public com.tcoded.folialib.wrapper.task.WrappedTask runAtEntityTimer(org.bukkit.entity.Entity entity, java.lang.Runnable runnable, long delay, long period, java.util.concurrent.TimeUnit timeUnit)
 		{
-			return scheduler.runAtEntityTimer(entity, runnable, delay, period, timeUnit);
+			return scheduler.runAtEntityTimer(entity, this.instrument(runnable), delay, period, timeUnit);
+		}
+
+		/**
+		 * Runs a repeating task off the main thread.
+		 * On Folia: runs on AsyncScheduler
+		 * On Spigot/Paper: runs on an async scheduler thread
+		 *
+		 * @param runnable The task to run
+		 * @param delayTicks Delay before first execution (in ticks)
+		 * @param periodTicks Period between executions (in ticks)
+		 * @return WrappedTask that can be cancelled
+		 */
+		public com.tcoded.folialib.wrapper.task.WrappedTask runTimerAsync(java.lang.Runnable runnable, long delayTicks, long periodTicks)
+		{
+			return scheduler.runTimerAsync(this.instrument(runnable), delayTicks, periodTicks);
+		}
+		
+		private java.util.function.Consumer<com.tcoded.folialib.wrapper.task.WrappedTask> instrument(java.util.function.Consumer<com.tcoded.folialib.wrapper.task.WrappedTask> task)
+		{
+			SchedulerStats.TaskStats taskStats = this.stats.get(task.getClass());
+			taskStats.recordSubmit();
+			
+			long submittedAt = System.nanoTime();
+			return wrappedTask -> {
+				long start = System.nanoTime();
+				try
+				{
+					task.accept(wrappedTask);
+				}
+				finally
+				{
+					taskStats.recordExecution(start - submittedAt, System.nanoTime() - start);
+				}
+			};
+		}
+		
+		private java.lang.Runnable instrument(java.lang.Runnable runnable)
+		{
+			SchedulerStats.TaskStats taskStats = this.stats.get(runnable.getClass());
+			taskStats.recordSubmit();
+			
+			// Repeating, the latency of later runs can't be told apart from the period
+			return () -> {
+				long start = System.nanoTime();
+				try
+				{
+					runnable.run();
+				}
+				finally
+				{
+					taskStats.recordExecution(-1L, System.nanoTime() - start);
+				}
+			};
+		}
+		
+		private static class Mailbox
+		{
+			private final Map<Object, QueuedMutation> pending = new LinkedHashMap<>();
+			private boolean scheduled;
+		}
+		
+		private record QueuedMutation(java.lang.Runnable mutation, SchedulerStats.TaskStats stats, long queuedAt)
+		{
 		}
 	}
 	
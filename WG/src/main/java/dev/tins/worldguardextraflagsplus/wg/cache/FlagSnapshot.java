@@ -0,0 +1,118 @@
+package dev.tins.worldguardextraflagsplus.wg.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.association.RegionAssociable;
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.flags.RegionGroup;
+import com.sk89q.worldguard.protection.flags.RegionGroupFlag;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+
+/**
+ * Immutable view of every plugin flag value for one region overlap.
+ * Values that depend on the subject (region group flags) are not precompiled
+ * and are resolved against the cached region set instead.
+ */
+public final class FlagSnapshot
+{
+	// Marks a precompiled flag without a value, the backing map can't tell absent from null otherwise
+	private static final Object NO_VALUE = new Object();
+
+	private final ApplicableRegionSet regions;
+	private final Map<Flag<?>, Object> values;
+
+	private FlagSnapshot(ApplicableRegionSet regions, Map<Flag<?>, Object> values)
+	{
+		this.regions = regions;
+		this.values = values;
+	}
+
+	/**
+	 * Wraps a region set without precompiling anything.
+	 * Used to mark sections that are only partially covered by regions.
+	 */
+	static FlagSnapshot live(ApplicableRegionSet regions)
+	{
+		return new FlagSnapshot(regions, Collections.emptyMap());
+	}
+
+	static FlagSnapshot compile(ApplicableRegionSet regions, ProtectedRegion globalRegion, Collection<Flag<?>> flags)
+	{
+		Map<Flag<?>, Object> values = new HashMap<>();
+		for (Flag<?> flag : flags)
+		{
+			if (FlagSnapshot.isSubjectDependent(regions, globalRegion, flag))
+			{
+				continue;
+			}
+
+			Object value = regions.queryValue(null, flag);
+			values.put(flag, value != null ? value : FlagSnapshot.NO_VALUE);
+		}
+
+		return new FlagSnapshot(regions, Collections.unmodifiableMap(values));
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T queryValue(RegionAssociable subject, Flag<T> flag)
+	{
+		Object value = this.values.get(flag);
+		if (value == null)
+		{
+			return this.regions.queryValue(subject, flag);
+		}
+
+		return value != FlagSnapshot.NO_VALUE ? (T) value : null;
+	}
+
+	public StateFlag.State queryState(RegionAssociable subject, StateFlag flag)
+	{
+		return this.queryValue(subject, flag);
+	}
+
+	public ApplicableRegionSet getRegions()
+	{
+		return this.regions;
+	}
+
+	/**
+	 * A flag value only depends on the subject when a region group other than ALL
+	 * applies to it somewhere in the overlap (including parents and the global region).
+	 */
+	private static boolean isSubjectDependent(ApplicableRegionSet regions, ProtectedRegion globalRegion, Flag<?> flag)
+	{
+		RegionGroupFlag groupFlag = flag.getRegionGroupFlag();
+		if (groupFlag == null)
+		{
+			return false;
+		}
+
+		if (groupFlag.getDefault() != RegionGroup.ALL)
+		{
+			return true;
+		}
+
+		if (globalRegion != null && globalRegion.getFlag(groupFlag) != null)
+		{
+			return true;
+		}
+
+		for (ProtectedRegion region : regions)
+		{
+			for (ProtectedRegion current = region; current != null; current = current.getParent())
+			{
+				if (current.getFlag(groupFlag) != null)
+				{
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+}
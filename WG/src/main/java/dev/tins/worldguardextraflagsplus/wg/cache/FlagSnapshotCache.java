@@ -0,0 +1,163 @@
+package dev.tins.worldguardextraflagsplus.wg.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+
+import dev.tins.worldguardextraflagsplus.wg.RegionChangeTracker;
+
+/**
+ * Caches compiled flag snapshots per world and 16x16x16 chunk section.
+ * A section that is fully inside (or fully outside) every region touching it
+ * shares one snapshot with every other section of the same region overlap.
+ * Sections crossed by a region border are remembered as mixed and resolved per block,
+ * blocks there still get the one snapshot of their region overlap, so bulk lookups can group them.
+ */
+public class FlagSnapshotCache implements RegionChangeTracker.Listener
+{
+	// Hard cap per world, the section map is simply dropped once reached
+	private static final int MAX_SECTIONS_PER_WORLD = 1 << 16;
+
+	// Id of the throwaway cuboid used to find the regions touching a section
+	public static final String SECTION_REGION_ID = "wgefp_section_tester";
+
+	private final RegionContainer regionContainer;
+	private final Collection<Flag<?>> flags;
+
+	private final Map<String, WorldSnapshots> worlds = new ConcurrentHashMap<>();
+
+	public FlagSnapshotCache(RegionContainer regionContainer, Collection<Flag<?>> flags)
+	{
+		this.regionContainer = regionContainer;
+		this.flags = List.copyOf(flags);
+	}
+
+	/**
+	 * Returns the snapshot covering the given location.
+	 * Never null, sections crossed by a region border query the regions of the block.
+	 */
+	public FlagSnapshot getSnapshot(Location location)
+	{
+		return this.getSnapshot((World) location.getExtent(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+	/**
+	 * Block coordinate variant, avoids adapting a location per block for bulk lookups.
+	 */
+	public FlagSnapshot getSnapshot(World world, int x, int y, int z)
+	{
+		WorldSnapshots snapshots = this.worlds.computeIfAbsent(world.getName(), k -> new WorldSnapshots());
+
+		int sectionX = x >> 4;
+		int sectionY = y >> 4;
+		int sectionZ = z >> 4;
+		long key = FlagSnapshotCache.sectionKey(sectionX, sectionY, sectionZ);
+
+		FlagSnapshot snapshot = snapshots.sections.get(key);
+		if (snapshot == null)
+		{
+			snapshot = this.compile(world, sectionX, sectionY, sectionZ, snapshots);
+
+			if (snapshots.sections.size() >= FlagSnapshotCache.MAX_SECTIONS_PER_WORLD)
+			{
+				snapshots.sections.clear();
+			}
+
+			snapshots.sections.put(key, snapshot);
+		}
+
+		if (snapshot == WorldSnapshots.MIXED)
+		{
+			return this.getOverlapSnapshot(world, new Location(world, x, y, z), snapshots);
+		}
+
+		return snapshot;
+	}
+
+	public void invalidate(String worldName)
+	{
+		this.worlds.remove(worldName);
+	}
+
+	public void invalidateAll()
+	{
+		this.worlds.clear();
+	}
+
+	@Override
+	public void onRegionsChanged(String worldName)
+	{
+		this.invalidate(worldName);
+	}
+
+	private FlagSnapshot compile(World world, int sectionX, int sectionY, int sectionZ, WorldSnapshots snapshots)
+	{
+		RegionManager regionManager = this.regionContainer.get(world);
+		if (regionManager == null)
+		{
+			return WorldSnapshots.MIXED;
+		}
+
+		BlockVector3 min = BlockVector3.at(sectionX << 4, sectionY << 4, sectionZ << 4);
+		BlockVector3 max = min.add(15, 15, 15);
+
+		// Only cuboids can be checked for full containment by their corners
+		for (ProtectedRegion region : regionManager.getApplicableRegions(new ProtectedCuboidRegion(FlagSnapshotCache.SECTION_REGION_ID, min, max)))
+		{
+			if (!(region instanceof ProtectedCuboidRegion) || !region.contains(min) || !region.contains(max))
+			{
+				return WorldSnapshots.MIXED;
+			}
+		}
+
+		return this.getOverlapSnapshot(world, new Location(world, min.x(), min.y(), min.z()), snapshots);
+	}
+
+	/**
+	 * The snapshot shared by every location with the same applicable regions.
+	 */
+	private FlagSnapshot getOverlapSnapshot(World world, Location location, WorldSnapshots snapshots)
+	{
+		ApplicableRegionSet regions = this.regionContainer.createQuery().getApplicableRegions(location);
+
+		FlagSnapshot snapshot = snapshots.overlaps.get(regions.getRegions());
+		if (snapshot == null)
+		{
+			RegionManager regionManager = this.regionContainer.get(world);
+			ProtectedRegion globalRegion = regionManager != null ? regionManager.getRegion(ProtectedRegion.GLOBAL_REGION) : null;
+
+			snapshot = snapshots.overlaps.computeIfAbsent(new HashSet<>(regions.getRegions()), k -> FlagSnapshot.compile(regions, globalRegion, this.flags));
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Packs the coordinates of a 16x16x16 section, the block coordinates shifted right by 4, into one key.
+	 */
+	public static long sectionKey(int sectionX, int sectionY, int sectionZ)
+	{
+		return ((long) (sectionX & 0x3FFFFF) << 42) | ((long) (sectionZ & 0x3FFFFF) << 20) | (sectionY & 0xFFFFF);
+	}
+
+	private static class WorldSnapshots
+	{
+		private static final FlagSnapshot MIXED = FlagSnapshot.live(null);
+
+		private final Map<Long, FlagSnapshot> sections = new ConcurrentHashMap<>();
+		private final Map<Set<ProtectedRegion>, FlagSnapshot> overlaps = new ConcurrentHashMap<>();
+	}
+}
@@ -60,8 +60,8 @@ public abstract class AbstractSpeedFlagHandler extends FlagValueChangeHandler<Do
 		final double finalSpeed = clampedSpeed;
 		final boolean hasSpeed = speed != null;
 
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
-			if (!this.getSession().getManager().hasBypass(player, world) && hasSpeed)
+		WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
+			if (!BypassHandler.hasBypass(this.getSession(), player, world) && hasSpeed)
 			{
 				if (this.getSpeed(bukkitPlayer) != finalSpeed)
 				{
@@ -1,12 +1,7 @@
 package dev.tins.worldguardextraflagsplus.wg.handlers;
 
-import java.util.Iterator;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
-import com.sk89q.worldedit.bukkit.BukkitPlayer;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldguard.LocalPlayer;
@@ -17,10 +12,6 @@ import com.sk89q.worldguard.session.handler.FlagValueChangeHandler;
 import com.sk89q.worldguard.session.handler.Handler;
 
 import dev.tins.worldguardextraflagsplus.flags.Flags;
-import dev.tins.worldguardextraflagsplus.flags.data.PotionEffectDetails;
-import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
-import org.bukkit.entity.Player;
-import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
 public class BlockedEffectsFlagHandler extends FlagValueChangeHandler<Set<PotionEffectType>> {
@@ -37,13 +28,9 @@ public class BlockedEffectsFlagHandler extends FlagValueChangeHandler<Set<Potion
         }
     }
 	
-	private ConcurrentHashMap<PotionEffectType, PotionEffectDetails> removedEffects;
-    
 	protected BlockedEffectsFlagHandler(Session session)
 	{
 		super(session, Flags.BLOCKED_EFFECTS);
-		
-		this.removedEffects = new ConcurrentHashMap<>();
 	}
 
 	@Override
@@ -74,59 +61,8 @@ public class BlockedEffectsFlagHandler extends FlagValueChangeHandler<Set<Potion
 	
 	private void handleValue(LocalPlayer player, World world, Set<PotionEffectType> value)
 	{
-		Player bukkitPlayer = ((BukkitPlayer) player).getPlayer();
-		
-		// Don't schedule tasks during shutdown
-		if (!WorldGuardUtils.isPluginEnabled() || !bukkitPlayer.isOnline())
-		{
-			return;
-		}
+		boolean bypass = BypassHandler.hasBypass(this.getSession(), player, world);
 
-		if (!this.getSession().getManager().hasBypass(player, world) && value != null)
-		{
-			for (PotionEffectType effectType : value)
-			{
-				PotionEffect effect = null;
-				for (PotionEffect activeEffect : bukkitPlayer.getActivePotionEffects())
-				{
-					if (activeEffect.getType().equals(effectType))
-					{
-						effect = activeEffect;
-						break;
-					}
-				}
-				
-				if (effect != null)
-				{
-					this.removedEffects.put(effect.getType(), new PotionEffectDetails(System.nanoTime() + (long) (effect.getDuration() / 20D * TimeUnit.SECONDS.toNanos(1L)), effect.getAmplifier(), effect.isAmbient(), effect.hasParticles()));
-
-					WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, (wrappedTask) -> bukkitPlayer.removePotionEffect(effectType));
-				}
-			}
-		}
-		
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
-			Iterator<Entry<PotionEffectType, PotionEffectDetails>> iterator = this.removedEffects.entrySet().iterator();
-			
-			while (iterator.hasNext()) {
-				Entry<PotionEffectType, PotionEffectDetails> entry = iterator.next();
-				PotionEffectType type = entry.getKey();
-				
-				if (value == null || !value.contains(type)) {
-					PotionEffectDetails details = entry.getValue();
-					int timeLeft = details.getTimeLeftInTicks();
-					
-					if (timeLeft > 0) {
-						PotionEffect effect = new PotionEffect(type, timeLeft, details.getAmplifier(), details.isAmbient(), details.isParticles());
-						bukkitPlayer.addPotionEffect(effect, true);
-					}
-					
-					iterator.remove();
-				}
-			}
-		});
+		this.getSession().getHandler(PotionEffectsHandler.class).setBlockedEffects(player, bypass ? null : value);
 	}
 }
-
-
-
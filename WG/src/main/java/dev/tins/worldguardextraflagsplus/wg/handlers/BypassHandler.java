@@ -0,0 +1,112 @@
+package dev.tins.worldguardextraflagsplus.wg.handlers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.session.Session;
+import com.sk89q.worldguard.session.SessionManager;
+import com.sk89q.worldguard.session.handler.Handler;
+
+/**
+ * Caches the region bypass permission check of the session's player for the world they are in.
+ * The check goes through the permission plugin, which is expensive when it has to resolve contexts.
+ * A verdict is dropped when the player is in another world, when {@link #invalidate()} or {@link #invalidateAll()}
+ * is called and otherwise after a few seconds, so permission changes the plugin is not told about still apply.
+ */
+public class BypassHandler extends Handler
+{
+	private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	// Bumped by invalidateAll, verdicts of an older generation are stale
+	private static final AtomicInteger GENERATION = new AtomicInteger();
+
+	public static final Factory FACTORY()
+	{
+		return new Factory();
+	}
+
+	public static class Factory extends Handler.Factory<BypassHandler>
+	{
+		@Override
+		public BypassHandler create(Session session)
+		{
+			return new BypassHandler(session);
+		}
+	}
+
+	// Replaced as a whole, events of the player may check it from different threads
+	private volatile Verdict verdict;
+
+	protected BypassHandler(Session session)
+	{
+		super(session);
+	}
+
+	public boolean hasBypass(LocalPlayer player, World world)
+	{
+		String worldName = world.getName();
+		int generation = BypassHandler.GENERATION.get();
+		long now = System.nanoTime();
+
+		Verdict verdict = this.verdict;
+		if (verdict != null && verdict.generation() == generation && now - verdict.expiresAt() < 0 && verdict.worldName().equals(worldName))
+		{
+			return verdict.bypass();
+		}
+
+		boolean bypass = this.getSession().getManager().hasBypass(player, world);
+
+		this.verdict = new Verdict(worldName, bypass, generation, now + BypassHandler.TTL_NANOS);
+		return bypass;
+	}
+
+	/**
+	 * Drops the cached verdict of this player, like after their permissions changed.
+	 */
+	public void invalidate()
+	{
+		this.verdict = null;
+	}
+
+	/**
+	 * Drops the cached verdicts of every player, like after WorldGuard reloaded its configuration.
+	 */
+	public static void invalidateAll()
+	{
+		BypassHandler.GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * Checks bypass through the session's bypass cache, or directly when the handler is not registered.
+	 */
+	public static boolean hasBypass(Session session, LocalPlayer player, World world)
+	{
+		BypassHandler handler = session.getHandler(BypassHandler.class);
+		if (handler == null)
+		{
+			return session.getManager().hasBypass(player, world);
+		}
+
+		return handler.hasBypass(player, world);
+	}
+
+	/**
+	 * Listener variant, players without a session (like NPCs) are checked directly instead of getting one.
+	 */
+	public static boolean hasBypass(SessionManager sessionManager, LocalPlayer player, World world)
+	{
+		Session session = sessionManager.getIfPresent(player);
+		if (session == null)
+		{
+			return sessionManager.hasBypass(player, world);
+		}
+
+		return BypassHandler.hasBypass(session, player, world);
+	}
+
+	private record Verdict(String worldName, boolean bypass, int generation, long expiresAt)
+	{
+	}
+}
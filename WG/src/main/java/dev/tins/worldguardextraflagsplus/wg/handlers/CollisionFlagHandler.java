@@ -69,17 +69,17 @@ public class CollisionFlagHandler extends FlagValueChangeHandler<Boolean>
 		}
 		
 		// Check if player has bypass
-		if (this.getSession().getManager().hasBypass(player, world))
+		if (BypassHandler.hasBypass(this.getSession(), player, world))
 		{
 			// Remove from collision team if has bypass
-			WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
+			WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
 				removeFromCollisionTeam(bukkitPlayer);
 			});
 			return;
 		}
 		
 		// Use FoliaLib scheduler to run on entity thread
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
+		WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
 			if (disableCollision != null && disableCollision)
 			{
 				// Add to collision-disabled team
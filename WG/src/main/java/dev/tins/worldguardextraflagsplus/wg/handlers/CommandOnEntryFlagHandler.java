@@ -50,7 +50,7 @@ public class CommandOnEntryFlagHandler extends Handler
 	{
 		Collection<Set<String>> commands = toSet.queryAllValues(player, Flags.COMMAND_ON_ENTRY);
 
-		if (!this.getSession().getManager().hasBypass(player, (World) to.getExtent()))
+		if (!BypassHandler.hasBypass(this.getSession(), player, (World) to.getExtent()))
 		{
 			for(Set<String> commands_ : commands)
 			{
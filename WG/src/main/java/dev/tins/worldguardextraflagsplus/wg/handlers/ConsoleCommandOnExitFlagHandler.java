@@ -72,7 +72,7 @@ public class ConsoleCommandOnExitFlagHandler extends Handler
 
 		this.lastCommands = commands;
 
-		if (!this.getSession().getManager().hasBypass(player, (World) to.getExtent()))
+		if (!BypassHandler.hasBypass(this.getSession(), player, (World) to.getExtent()))
 		{
 			for (Set<String> commands_ : lastCommands)
 			{
@@ -12,81 +12,49 @@ import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.session.MoveType;
 
 import dev.tins.worldguardextraflagsplus.flags.Flags;
+import dev.tins.worldguardextraflagsplus.flags.data.PlaceholderLevel;
 import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+import dev.tins.worldguardextraflagsplus.wg.placeholders.PlaceholderCache;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
 
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 public class EntryLevelFlagHandler extends Handler
 {
-	public static final Factory FACTORY(Plugin plugin)
+	public static final Factory FACTORY(PlaceholderCache placeholderCache)
 	{
-		return new Factory(plugin);
+		return new Factory(placeholderCache);
 	}
 
 	public static class Factory extends Handler.Factory<EntryLevelFlagHandler>
 	{
-		private final Plugin plugin;
+		private final PlaceholderCache placeholderCache;
 
-		public Factory(Plugin plugin)
+		public Factory(PlaceholderCache placeholderCache)
 		{
-			this.plugin = plugin;
+			this.placeholderCache = placeholderCache;
 		}
 
 		@Override
 		public EntryLevelFlagHandler create(Session session)
 		{
-			return new EntryLevelFlagHandler(this.plugin, session);
+			return new EntryLevelFlagHandler(this.placeholderCache, session);
 		}
 	}
 
-	private final Plugin plugin;
-	
-	// Cache: player UUID -> (placeholder -> (value, timestamp))
-	private final ConcurrentHashMap<String, PlaceholderCacheEntry> placeholderCache = new ConcurrentHashMap<>();
-	private static final long CACHE_DURATION_MS = TimeUnit.SECONDS.toMillis(30);
-
-	private static class PlaceholderCacheEntry
-	{
-		private final Integer value;
-		private final long timestamp;
-		
-		public PlaceholderCacheEntry(Integer value, long timestamp)
-		{
-			this.value = value;
-			this.timestamp = timestamp;
-		}
-		
-		public Integer getValue()
-		{
-			return value;
-		}
-		
-		public long getTimestamp()
-		{
-			return timestamp;
-		}
-		
-		public boolean isExpired()
-		{
-			return System.currentTimeMillis() - timestamp > CACHE_DURATION_MS;
-		}
-	}
+	private final PlaceholderCache placeholderCache;
 
-	protected EntryLevelFlagHandler(Plugin plugin, Session session)
+	protected EntryLevelFlagHandler(PlaceholderCache placeholderCache, Session session)
 	{
 		super(session);
-		this.plugin = plugin;
+		this.placeholderCache = placeholderCache;
 	}
 
 	@Override
 	public boolean onCrossBoundary(LocalPlayer player, Location from, Location to, ApplicableRegionSet toSet, Set<ProtectedRegion> entered, Set<ProtectedRegion> exited, MoveType moveType)
 	{
 		// Check if player has bypass
-		if (this.getSession().getManager().hasBypass(player, (World) to.getExtent()))
+		if (BypassHandler.hasBypass(this.getSession(), player, (World) to.getExtent()))
 		{
 			return true; // Allow entry if player has bypass
 		}
@@ -94,27 +62,20 @@ public class EntryLevelFlagHandler extends Handler
 		// Check entry-min-level flag
 		// Format: "<threshold> <source>" where source is "XP" or a placeholder like "%battlepass_tier%"
 		// Example: "10 XP" or "10 %battlepass_tier%"
-		String minLevelValue = toSet.queryValue(player, Flags.ENTRY_MIN_LEVEL);
-		if (minLevelValue != null && !minLevelValue.isEmpty())
+		PlaceholderLevel minLevel = toSet.queryValue(player, Flags.ENTRY_MIN_LEVEL);
+		if (minLevel != null)
 		{
-			ParsedFlagValue parsed = parseFlagValue(minLevelValue);
-			if (parsed == null)
-			{
-				// Invalid format - allow entry (don't break experience)
-				return true;
-			}
-			
-			Integer playerValue = getPlayerValue(player, parsed.source);
+			Integer playerValue = getPlayerValue(player, minLevel);
 			if (playerValue == null)
 			{
-				// Invalid source or cannot get value - allow entry (don't break experience)
+				// Cannot get value - allow entry (don't break experience)
 				return true;
 			}
 			
-			if (playerValue < parsed.threshold)
+			if (playerValue < minLevel.threshold())
 			{
 				// Player value is below minimum, deny entry
-				sendDeniedMessage(((BukkitPlayer) player).getPlayer(), "entry-min-level", parsed.threshold, playerValue);
+				sendDeniedMessage(((BukkitPlayer) player).getPlayer(), "entry-min-level", minLevel.threshold(), playerValue);
 				return false; // Deny entry
 			}
 		}
@@ -122,27 +83,20 @@ public class EntryLevelFlagHandler extends Handler
 		// Check entry-max-level flag
 		// Format: "<threshold> <source>" where source is "XP" or a placeholder like "%battlepass_tier%"
 		// Example: "70 XP" or "70 %armor_durability_left_helmet%"
-		String maxLevelValue = toSet.queryValue(player, Flags.ENTRY_MAX_LEVEL);
-		if (maxLevelValue != null && !maxLevelValue.isEmpty())
+		PlaceholderLevel maxLevel = toSet.queryValue(player, Flags.ENTRY_MAX_LEVEL);
+		if (maxLevel != null)
 		{
-			ParsedFlagValue parsed = parseFlagValue(maxLevelValue);
-			if (parsed == null)
-			{
-				// Invalid format - allow entry (don't break experience)
-				return true;
-			}
-			
-			Integer playerValue = getPlayerValue(player, parsed.source);
+			Integer playerValue = getPlayerValue(player, maxLevel);
 			if (playerValue == null)
 			{
-				// Invalid source or cannot get value - allow entry (don't break experience)
+				// Cannot get value - allow entry (don't break experience)
 				return true;
 			}
 			
-			if (playerValue > parsed.threshold)
+			if (playerValue > maxLevel.threshold())
 			{
 				// Player value is above maximum, deny entry
-				sendDeniedMessage(((BukkitPlayer) player).getPlayer(), "entry-max-level", parsed.threshold, playerValue);
+				sendDeniedMessage(((BukkitPlayer) player).getPlayer(), "entry-max-level", maxLevel.threshold(), playerValue);
 				return false; // Deny entry
 			}
 		}
@@ -151,206 +105,82 @@ public class EntryLevelFlagHandler extends Handler
 	}
 	
 	/**
-	 * Parsed flag value containing threshold and source.
-	 */
-	private static class ParsedFlagValue
-	{
-		final int threshold;
-		final String source;
-		
-		ParsedFlagValue(int threshold, String source)
-		{
-			this.threshold = threshold;
-			this.source = source;
-		}
-	}
-	
-	/**
-	 * Parses flag value in format: "<threshold> <source>"
-	 * Returns null if invalid format.
+	 * Gets player value from the flag source, either the XP level or a PlaceholderAPI placeholder.
+	 * Returns null if the value cannot be retrieved.
 	 */
-	private ParsedFlagValue parseFlagValue(String flagValue)
+	private Integer getPlayerValue(LocalPlayer localPlayer, PlaceholderLevel level)
 	{
-		if (flagValue == null || flagValue.trim().isEmpty())
-		{
-			return null;
-		}
-		
-		String trimmed = flagValue.trim();
-		String[] parts = trimmed.split("\\s+", 2);
-		
-		if (parts.length != 2)
-		{
-			return null;
-		}
-		
-		// Parse threshold (first argument)
-		int threshold;
-		try
-		{
-			threshold = Integer.parseInt(parts[0].trim());
-		}
-		catch (NumberFormatException e)
-		{
-			return null;
-		}
-		
-		// Get source (second argument)
-		String source = parts[1].trim();
-		
-		return new ParsedFlagValue(threshold, source);
-	}
-	
-	/**
-	 * Gets player value from source.
-	 * Source can be "XP" or a PlaceholderAPI placeholder.
-	 * Returns null if source is invalid or value cannot be retrieved.
-	 */
-	private Integer getPlayerValue(LocalPlayer localPlayer, String source)
-	{
-		if (source == null || source.trim().isEmpty())
+		Player bukkitPlayer = ((BukkitPlayer) localPlayer).getPlayer();
+		if (!bukkitPlayer.isOnline())
 		{
 			return null;
 		}
 		
-		String trimmed = source.trim();
-		
-		// Check if source is "XP"
-		if (trimmed.equalsIgnoreCase("XP"))
+		if (level.source() == PlaceholderLevel.Source.XP)
 		{
-			Player bukkitPlayer = ((BukkitPlayer) localPlayer).getPlayer();
-			if (!bukkitPlayer.isOnline())
-			{
-				return null;
-			}
 			return bukkitPlayer.getLevel(); // Minecraft XP level
 		}
 		
-		// Check if source is a placeholder (starts with % and ends with %)
-		if (trimmed.startsWith("%") && trimmed.endsWith("%") && trimmed.length() > 2)
-		{
-			// It's a placeholder - evaluate via PlaceholderAPI
-			return getPlayerPlaceholderValue(localPlayer, trimmed);
-		}
+		// Null if PlaceholderAPI is not available
+		String placeholderValue = this.placeholderCache.setPlaceholders(bukkitPlayer, level.placeholder());
 		
-		// Invalid source format
-		return null;
+		return parseInteger(placeholderValue);
 	}
 
 	/**
-	 * Gets player value from a PlaceholderAPI placeholder.
-	 * Uses caching to reduce API calls.
-	 * Returns null if PlaceholderAPI is not available or placeholder is invalid.
+	 * Parses the numeric part of a placeholder result.
+	 * Same result as dropping every character except digits and '-' and parsing the rest,
+	 * without the regex and intermediate string.
 	 */
-	private Integer getPlayerPlaceholderValue(LocalPlayer localPlayer, String placeholder)
+	private static Integer parseInteger(String value)
 	{
-		if (placeholder == null || placeholder.trim().isEmpty())
-		{
-			return null;
-		}
-
-		Player bukkitPlayer = ((BukkitPlayer) localPlayer).getPlayer();
-		
-		if (!bukkitPlayer.isOnline())
+		if (value == null)
 		{
 			return null;
 		}
 
-		String trimmed = placeholder.trim();
+		boolean negative = false;
+		boolean digits = false;
+		long result = 0;
 
-		// Check if it's a placeholder (starts with % and ends with %)
-		if (!trimmed.startsWith("%") || !trimmed.endsWith("%") || trimmed.length() <= 2)
+		for (int i = 0; i < value.length(); i++)
 		{
-			return null;
-		}
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9')
+			{
+				result = result * 10 + (c - '0');
+				digits = true;
+
+				// Outside of the int range
+				if (result > (long) Integer.MAX_VALUE + 1)
+				{
+					return null;
+				}
+			}
+			else if (c == '-')
+			{
+				// Only a single leading sign parses
+				if (negative || digits)
+				{
+					return null;
+				}
 
-		// Check cache
-		String cacheKey = bukkitPlayer.getUniqueId().toString() + trimmed;
-		PlaceholderCacheEntry cached = placeholderCache.get(cacheKey);
-		
-		if (cached != null && !cached.isExpired())
-		{
-			return cached.getValue();
+				negative = true;
+			}
 		}
 
-		// Check if PlaceholderAPI is available
-		if (!isPlaceholderAPIAvailable())
+		if (!digits)
 		{
 			return null;
 		}
 
-		// Get placeholder value from PlaceholderAPI using reflection (soft dependency)
-		String placeholderValue = getPlaceholderValue(bukkitPlayer, trimmed);
-		
-		// Parse as integer
-		Integer parsedValue = parseInteger(placeholderValue);
-
-		// Cache the result
-		if (parsedValue != null)
-		{
-			placeholderCache.put(cacheKey, new PlaceholderCacheEntry(parsedValue, System.currentTimeMillis()));
-		}
-
-		return parsedValue;
-	}
-
-	/**
-	 * Checks if PlaceholderAPI is available on the server.
-	 */
-	private boolean isPlaceholderAPIAvailable()
-	{
-		return plugin.getServer().getPluginManager().getPlugin("PlaceholderAPI") != null;
-	}
-
-	/**
-	 * Gets placeholder value using PlaceholderAPI reflection.
-	 */
-	private String getPlaceholderValue(Player player, String placeholder)
-	{
-		if (!isPlaceholderAPIAvailable())
-		{
-			return "";
-		}
-
-		try
-		{
-			// Use reflection to call PlaceholderAPI.setPlaceholders() (soft dependency)
-			Class<?> placeholderAPIClass = Class.forName("me.clip.placeholderapi.PlaceholderAPI");
-			java.lang.reflect.Method setPlaceholdersMethod = placeholderAPIClass.getMethod("setPlaceholders", Player.class, String.class);
-			return (String) setPlaceholdersMethod.invoke(null, player, placeholder);
-		}
-		catch (Exception e)
-		{
-			// PlaceholderAPI not available or error occurred
-			return "";
-		}
-	}
-
-	/**
-	 * Parses a string value to an integer, handling numeric extraction.
-	 */
-	private Integer parseInteger(String value)
-	{
-		if (value == null || value.trim().isEmpty())
+		result = negative ? -result : result;
+		if (result > Integer.MAX_VALUE)
 		{
 			return null;
 		}
 
-		try
-		{
-			// Remove any non-numeric characters (for safety) but preserve negative sign
-			String numericOnly = value.trim().replaceAll("[^0-9-]", "");
-			if (!numericOnly.isEmpty() && !numericOnly.equals("-"))
-			{
-				return Integer.parseInt(numericOnly);
-			}
-		}
-		catch (NumberFormatException e)
-		{
-			// Invalid format
-		}
-
-		return null;
+		return (int) result;
 	}
 
 	private void sendDeniedMessage(Player player, String flagType, Integer requiredLevel, Integer playerLevel)
@@ -381,59 +211,13 @@ public class EntryLevelFlagHandler extends Handler
 		}
 
 		// Send message with cooldown using FoliaLib scheduler (runs on entity thread)
-		WorldGuardUtils.getScheduler().runAtEntity(player, task -> {
+		WorldGuardUtils.getScheduler().queueAtEntity(player, this, () -> {
 			if (player.isOnline())
 			{
-				sendMessageWithCooldown(player, messageKey, replacements);
+				WorldGuardUtils.getMessageSender().sendMessageWithCooldown(player, messageKey, replacements);
 			}
 		});
 	}
-	
-	/**
-	 * Sends a message to a player with cooldown using reflection (WG module can't depend on Spigot module).
-	 * Uses Messages.sendMessageWithCooldown() from Spigot module.
-	 */
-	private void sendMessageWithCooldown(Player player, String key, String... replacements)
-	{
-		try
-		{
-			// Use reflection to call Messages.sendMessageWithCooldown() from Spigot module
-			Class<?> messagesClass = Class.forName("dev.tins.worldguardextraflagsplus.Messages");
-			java.lang.reflect.Method sendMessageMethod = messagesClass.getMethod("sendMessageWithCooldown", 
-				org.bukkit.entity.Player.class, String.class, String[].class);
-			sendMessageMethod.invoke(null, player, key, replacements);
-		}
-		catch (Exception e)
-		{
-			// Fallback to sending message directly without cooldown if reflection fails
-			String message;
-			if ("entry-min-level-denied".equals(key))
-			{
-				// Extract required and current from replacements array
-				String required = replacements.length > 1 ? replacements[1] : "?";
-				String current = replacements.length > 3 ? replacements[3] : "?";
-				message = org.bukkit.ChatColor.RED + "Your level (" + current + ") is low to enter this area. " + 
-				       org.bukkit.ChatColor.GRAY + "Min: " + required;
-			}
-			else if ("entry-max-level-denied".equals(key))
-			{
-				// Extract required and current from replacements array
-				String required = replacements.length > 1 ? replacements[1] : "?";
-				String current = replacements.length > 3 ? replacements[3] : "?";
-				message = org.bukkit.ChatColor.RED + "Your level (" + current + ") is so high to enter this area. " + 
-				       org.bukkit.ChatColor.GRAY + "Max: " + required;
-			}
-			else
-			{
-				message = org.bukkit.ChatColor.RED + "Message not found: " + key;
-			}
-			
-			if (player.isOnline())
-			{
-				player.sendMessage(message);
-			}
-		}
-	}
 
 }
 
@@ -73,8 +73,8 @@ public class FlyFlagHandler extends FlagValueChangeHandler<State>
 			return;
 		}
 
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
-			if (!this.getSession().getManager().hasBypass(player, world) && state != null)
+		WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
+			if (!BypassHandler.hasBypass(this.getSession(), player, world) && state != null)
 			{
 				boolean value = state == State.ALLOW;
 				
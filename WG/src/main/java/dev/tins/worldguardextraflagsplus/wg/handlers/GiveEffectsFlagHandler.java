@@ -1,36 +1,21 @@
 package dev.tins.worldguardextraflagsplus.wg.handlers;
 
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.bukkit.BukkitPlayer;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.session.handler.FlagValueChangeHandler;
 import com.sk89q.worldguard.session.handler.Handler;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
 import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
 
 import com.sk89q.worldguard.protection.ApplicableRegionSet;
-import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.session.MoveType;
 import com.sk89q.worldguard.session.Session;
 
-import lombok.Getter;
 import dev.tins.worldguardextraflagsplus.flags.Flags;
-import dev.tins.worldguardextraflagsplus.flags.data.PotionEffectDetails;
-import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
 
 public class GiveEffectsFlagHandler extends FlagValueChangeHandler<Set<PotionEffect>> {
 	public static final Factory FACTORY() {
@@ -44,16 +29,8 @@ public class GiveEffectsFlagHandler extends FlagValueChangeHandler<Set<PotionEff
         }
     }
 
-	private Map<PotionEffectType, PotionEffectDetails> removedEffects;
-    private Set<PotionEffectType> givenEffects;
-    
-    @Getter private boolean supressRemovePotionPacket;
-    
 	protected GiveEffectsFlagHandler(Session session) {
 		super(session, Flags.GIVE_EFFECTS);
-		
-		this.removedEffects = new ConcurrentHashMap<>();
-		this.givenEffects = ConcurrentHashMap.newKeySet();
 	}
 
 	@Override
@@ -84,135 +61,20 @@ public class GiveEffectsFlagHandler extends FlagValueChangeHandler<Set<PotionEff
 	
 	private void handleValue(LocalPlayer player, World world, Set<PotionEffect> value)
 	{
-		Player bukkitPlayer = ((BukkitPlayer) player).getPlayer();
-		
-		// Don't schedule tasks during shutdown
-		if (!WorldGuardUtils.isPluginEnabled() || !bukkitPlayer.isOnline())
-		{
-			return;
-		}
+		boolean bypass = BypassHandler.hasBypass(this.getSession(), player, world);
 
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
-			if (!this.getSession().getManager().hasBypass(player, world) && value != null)
-			{
-				try
-				{
-					for (PotionEffect effect : value)
-					{
-						PotionEffect effect_ = null;
-						for(PotionEffect activeEffect : bukkitPlayer.getActivePotionEffects())
-						{
-							if (activeEffect.getType().equals(effect.getType()))
-							{
-								effect_ = activeEffect;
-								break;
-							}
-						}
-						
-						this.supressRemovePotionPacket = effect_ != null && effect_.getAmplifier() == effect.getAmplifier();
-		
-						if (this.givenEffects.add(effect.getType()) && effect_ != null)
-						{
-							this.removedEffects.put(effect_.getType(), new PotionEffectDetails(System.nanoTime() + (long)(effect_.getDuration() / 20D * TimeUnit.SECONDS.toNanos(1L)), effect_.getAmplifier(), effect_.isAmbient(), effect_.hasParticles()));
-
-							bukkitPlayer.removePotionEffect(effect_.getType());
-						}
-
-						bukkitPlayer.addPotionEffect(effect, true);
-					}
-				}
-				finally
-				{
-					this.supressRemovePotionPacket = false;
-				}
-			}
-			
-			Iterator<PotionEffectType> effectTypes = this.givenEffects.iterator();
-			while (effectTypes.hasNext())
-			{
-				PotionEffectType type = effectTypes.next();
-				
-				if (value != null && value.size() > 0)
-				{
-					boolean skip = false;
-					for (PotionEffect effect : value)
-					{
-						if (effect.getType().equals(type))
-						{
-							skip = true;
-							break;
-						}
-					}
-					
-					if (skip)
-					{
-						continue;
-					}
-				}
-
-				bukkitPlayer.removePotionEffect(type);
-				
-				effectTypes.remove();
-			}
-			
-			Iterator<Entry<PotionEffectType, PotionEffectDetails>> potionEffects_ = this.removedEffects.entrySet().iterator();
-			while (potionEffects_.hasNext())
-			{
-				Entry<PotionEffectType, PotionEffectDetails> effect = potionEffects_.next();
-				if (!this.givenEffects.contains(effect.getKey()))
-				{
-					PotionEffectDetails removedEffect = effect.getValue();
-					if (removedEffect != null)
-					{
-						int timeLeft = removedEffect.getTimeLeftInTicks();
-						
-						if (timeLeft > 0)
-						{
-							bukkitPlayer.addPotionEffect(new PotionEffect(effect.getKey(), timeLeft, removedEffect.getAmplifier(), removedEffect.isAmbient(), removedEffect.isParticles()), true);
-						}
-					}
-					
-					potionEffects_.remove();
-				}
-			}
-		});
+		this.getSession().getHandler(PotionEffectsHandler.class).setGivenEffects(player, bypass ? null : value);
+	}
+	
+	public boolean isSupressRemovePotionPacket() {
+		return this.getSession().getHandler(PotionEffectsHandler.class).isSupressRemovePotionPacket();
 	}
 	
 	public void drinkMilk(Player bukkitPlayer) {
-		this.removedEffects.clear();
-
-		LocalPlayer player = WorldGuardPlugin.inst().wrapPlayer(bukkitPlayer);
-		Set<PotionEffect> value = WorldGuard.getInstance()
-			.getPlatform().getRegionContainer()
-			.createQuery()
-			.getApplicableRegions(player.getLocation())
-			.queryValue(player, Flags.GIVE_EFFECTS);
-
-		this.handleValue(player, player.getWorld(), value);
+		this.getSession().getHandler(PotionEffectsHandler.class).drinkMilk(bukkitPlayer);
 	}
 	
 	public void drinkPotion(Player bukkitPlayer, Collection<PotionEffect> effects) {
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
-			for (PotionEffect effect : effects) {
-				this.removedEffects.put(effect.getType(), new PotionEffectDetails(
-					System.nanoTime() + (long)(effect.getDuration() / 20D * TimeUnit.SECONDS.toNanos(1L)),
-					effect.getAmplifier(),
-					effect.isAmbient(),
-					effect.hasParticles()
-				));
-			}
-
-			LocalPlayer player = WorldGuardPlugin.inst().wrapPlayer(bukkitPlayer);
-			Set<PotionEffect> value = WorldGuard.getInstance()
-				.getPlatform().getRegionContainer()
-				.createQuery()
-				.getApplicableRegions(player.getLocation())
-				.queryValue(player, Flags.GIVE_EFFECTS);
-
-			this.handleValue(player, player.getWorld(), value);
-		});
+		this.getSession().getHandler(PotionEffectsHandler.class).drinkPotion(bukkitPlayer, effects);
 	}
 }
-
-
-
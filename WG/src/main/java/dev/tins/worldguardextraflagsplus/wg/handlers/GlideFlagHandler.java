@@ -70,8 +70,8 @@ public class GlideFlagHandler extends FlagValueChangeHandler<ForcedState>
 			return;
 		}
 
-		WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
-			if (!this.getSession().getManager().hasBypass(player, world) && state != null)
+		WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
+			if (!BypassHandler.hasBypass(this.getSession(), player, world) && state != null)
 			{
 				if (state != ForcedState.ALLOW)
 				{
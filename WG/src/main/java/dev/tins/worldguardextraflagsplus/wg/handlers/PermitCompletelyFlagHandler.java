@@ -0,0 +1,74 @@
+package dev.tins.worldguardextraflagsplus.wg.handlers;
+
+import java.util.Set;
+
+import org.bukkit.Material;
+
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.session.MoveType;
+import com.sk89q.worldguard.session.Session;
+import com.sk89q.worldguard.session.handler.FlagValueChangeHandler;
+import com.sk89q.worldguard.session.handler.Handler;
+
+import dev.tins.worldguardextraflagsplus.flags.Flags;
+
+/**
+ * Keeps the items the permit-completely flag blocks where the player currently is.
+ * The value only changes when the player crosses a region boundary,
+ * so item checks read the player's session instead of querying the regions.
+ */
+public class PermitCompletelyFlagHandler extends FlagValueChangeHandler<Set<Material>>
+{
+	public static final Factory FACTORY()
+	{
+		return new Factory();
+	}
+
+	public static class Factory extends Handler.Factory<PermitCompletelyFlagHandler>
+	{
+		@Override
+		public PermitCompletelyFlagHandler create(Session session)
+		{
+			return new PermitCompletelyFlagHandler(session);
+		}
+	}
+
+	// Material bitset shared with the region, read from event threads
+	private volatile Set<Material> blockedItems;
+
+	protected PermitCompletelyFlagHandler(Session session)
+	{
+		super(session, Flags.PERMIT_COMPLETELY);
+	}
+
+	@Override
+	protected void onInitialValue(LocalPlayer player, ApplicableRegionSet set, Set<Material> value)
+	{
+		this.blockedItems = value;
+	}
+
+	@Override
+	protected boolean onSetValue(LocalPlayer player, Location from, Location to, ApplicableRegionSet toSet, Set<Material> currentValue, Set<Material> lastValue, MoveType moveType)
+	{
+		this.blockedItems = currentValue;
+		return true;
+	}
+
+	@Override
+	protected boolean onAbsentValue(LocalPlayer player, Location from, Location to, ApplicableRegionSet toSet, Set<Material> lastValue, MoveType moveType)
+	{
+		this.blockedItems = null;
+		return true;
+	}
+
+	/**
+	 * @return Whether the item is blocked where the player is, bypass is not checked
+	 */
+	public boolean isBlocked(Material material)
+	{
+		Set<Material> blockedItems = this.blockedItems;
+		return blockedItems != null && blockedItems.contains(material);
+	}
+}
@@ -0,0 +1,278 @@
+package dev.tins.worldguardextraflagsplus.wg.handlers;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sk89q.worldedit.bukkit.BukkitPlayer;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.session.Session;
+import com.sk89q.worldguard.session.handler.Handler;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import lombok.Getter;
+import dev.tins.worldguardextraflagsplus.flags.data.PotionEffectDetails;
+import dev.tins.worldguardextraflagsplus.flags.helpers.PotionEffectFlag;
+import dev.tins.worldguardextraflagsplus.wg.WorldGuardUtils;
+
+/**
+ * Applies the give-effects and blocked-effects flags of a player in one place.
+ * The flag handlers only hand over their current value, the difference to the
+ * active effects is applied by a single queued entity mutation.
+ * A blocked effect is never given, even if a region gives it.
+ * Nothing is scheduled while the flag values and the player's effects stay the same,
+ * other than a periodic refresh of the given effects before they run out.
+ */
+public class PotionEffectsHandler extends Handler
+{
+	// The client shows an effect running out once it has less than 200 ticks left
+	private static final int RUNNING_OUT_TICKS = 200;
+
+	// Sessions tick once a second, a due refresh can land up to one session tick late
+	private static final int SESSION_TICK_TICKS = 20;
+
+	// Refresh given effects before they show as running out, with one more session tick as margin for the queued mutation (about 4 seconds)
+	private static final long REFRESH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+			(PotionEffectFlag.POTION_EFFECT_DURATION - PotionEffectsHandler.RUNNING_OUT_TICKS - 2 * PotionEffectsHandler.SESSION_TICK_TICKS) * 50L);
+
+	public static final Factory FACTORY()
+	{
+		return new Factory();
+	}
+
+	public static class Factory extends Handler.Factory<PotionEffectsHandler>
+	{
+		@Override
+		public PotionEffectsHandler create(Session session)
+		{
+			return new PotionEffectsHandler(session);
+		}
+	}
+
+	// Effects the player had before they were replaced or blocked, restored once that no longer applies
+	private final Map<PotionEffectType, PotionEffectDetails> removedEffects = new ConcurrentHashMap<>();
+	private final Set<PotionEffectType> givenEffects = ConcurrentHashMap.newKeySet();
+
+	private volatile Set<PotionEffect> givenValue;
+	private volatile Set<PotionEffectType> blockedValue;
+
+	// Bumped whenever the player's effects change outside of reconcile
+	private final AtomicInteger effectsVersion = new AtomicInteger();
+	private volatile int reconciledVersion;
+	private volatile boolean reconciling;
+
+	private volatile boolean givesEffects;
+	private volatile long refreshAt;
+
+	@Getter private boolean supressRemovePotionPacket;
+
+	protected PotionEffectsHandler(Session session)
+	{
+		super(session);
+	}
+
+	/**
+	 * @param value The effects to give, null if none apply or the player bypasses them
+	 */
+	public void setGivenEffects(LocalPlayer player, Set<PotionEffect> value)
+	{
+		// Flag values are shared by the region, the same instance means the same value
+		boolean changed = value != this.givenValue;
+		this.givenValue = value;
+
+		this.requestReconcile(((BukkitPlayer) player).getPlayer(), changed);
+	}
+
+	/**
+	 * @param value The effects to block, null if none apply or the player bypasses them
+	 */
+	public void setBlockedEffects(LocalPlayer player, Set<PotionEffectType> value)
+	{
+		boolean changed = value != this.blockedValue;
+		this.blockedValue = value;
+
+		this.requestReconcile(((BukkitPlayer) player).getPlayer(), changed);
+	}
+
+	/**
+	 * Called when the player's active effects changed, like an effect expiring or being removed by another plugin.
+	 */
+	public void onEffectsChanged()
+	{
+		// Changes made by reconcile itself don't need another pass
+		if (!this.reconciling)
+		{
+			this.effectsVersion.incrementAndGet();
+		}
+	}
+
+	public void drinkMilk(Player bukkitPlayer)
+	{
+		this.removedEffects.clear();
+
+		this.requestReconcile(bukkitPlayer, true);
+	}
+
+	public void drinkPotion(Player bukkitPlayer, Collection<PotionEffect> effects)
+	{
+		WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, () -> {
+			for (PotionEffect effect : effects)
+			{
+				this.removedEffects.put(effect.getType(), PotionEffectsHandler.toDetails(effect));
+			}
+
+			this.reconcile(bukkitPlayer);
+		});
+	}
+
+	private void requestReconcile(Player bukkitPlayer, boolean force)
+	{
+		// Don't schedule tasks during shutdown
+		if (!WorldGuardUtils.isPluginEnabled() || !bukkitPlayer.isOnline())
+		{
+			return;
+		}
+
+		// Nothing to apply and nothing to undo
+		if (this.givenValue == null && this.blockedValue == null && this.givenEffects.isEmpty() && this.removedEffects.isEmpty())
+		{
+			return;
+		}
+
+		// Same values, same effects and nothing running out
+		if (!force && this.effectsVersion.get() == this.reconciledVersion && (!this.givesEffects || System.nanoTime() - this.refreshAt < 0))
+		{
+			return;
+		}
+
+		// Every change until the mailbox is dispatched is picked up by the same reconcile
+		WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> this.reconcile(bukkitPlayer));
+	}
+
+	private void reconcile(Player bukkitPlayer)
+	{
+		int version = this.effectsVersion.get();
+
+		this.reconciling = true;
+		try
+		{
+			this.reconcile(bukkitPlayer, this.givenValue, this.blockedValue);
+		}
+		finally
+		{
+			this.reconciling = false;
+		}
+
+		this.reconciledVersion = version;
+	}
+
+	private void reconcile(Player bukkitPlayer, Set<PotionEffect> given, Set<PotionEffectType> blocked)
+	{
+		Map<PotionEffectType, PotionEffect> activeEffects = new HashMap<>();
+		for (PotionEffect effect : bukkitPlayer.getActivePotionEffects())
+		{
+			activeEffects.put(effect.getType(), effect);
+		}
+
+		Map<PotionEffectType, PotionEffect> wantedEffects = new HashMap<>();
+		if (given != null)
+		{
+			for (PotionEffect effect : given)
+			{
+				if (blocked == null || !blocked.contains(effect.getType()))
+				{
+					wantedEffects.put(effect.getType(), effect);
+				}
+			}
+		}
+
+		// Given effects that no longer apply
+		Iterator<PotionEffectType> effectTypes = this.givenEffects.iterator();
+		while (effectTypes.hasNext())
+		{
+			PotionEffectType type = effectTypes.next();
+			if (!wantedEffects.containsKey(type))
+			{
+				bukkitPlayer.removePotionEffect(type);
+				activeEffects.remove(type);
+
+				effectTypes.remove();
+			}
+		}
+
+		if (blocked != null)
+		{
+			for (PotionEffectType type : blocked)
+			{
+				PotionEffect effect = activeEffects.remove(type);
+				if (effect != null)
+				{
+					this.removedEffects.put(type, PotionEffectsHandler.toDetails(effect));
+
+					bukkitPlayer.removePotionEffect(type);
+				}
+			}
+		}
+
+		try
+		{
+			for (PotionEffect effect : wantedEffects.values())
+			{
+				PotionEffect activeEffect = activeEffects.get(effect.getType());
+
+				this.supressRemovePotionPacket = activeEffect != null && activeEffect.getAmplifier() == effect.getAmplifier();
+
+				if (this.givenEffects.add(effect.getType()) && activeEffect != null)
+				{
+					this.removedEffects.put(activeEffect.getType(), PotionEffectsHandler.toDetails(activeEffect));
+
+					bukkitPlayer.removePotionEffect(activeEffect.getType());
+				}
+
+				bukkitPlayer.addPotionEffect(effect, true);
+			}
+		}
+		finally
+		{
+			this.supressRemovePotionPacket = false;
+		}
+
+		this.givesEffects = !wantedEffects.isEmpty();
+		this.refreshAt = System.nanoTime() + PotionEffectsHandler.REFRESH_INTERVAL_NANOS;
+
+		Iterator<Entry<PotionEffectType, PotionEffectDetails>> removedEffects = this.removedEffects.entrySet().iterator();
+		while (removedEffects.hasNext())
+		{
+			Entry<PotionEffectType, PotionEffectDetails> entry = removedEffects.next();
+
+			PotionEffectType type = entry.getKey();
+			if (wantedEffects.containsKey(type) || (blocked != null && blocked.contains(type)))
+			{
+				continue;
+			}
+
+			PotionEffectDetails details = entry.getValue();
+
+			int timeLeft = details.getTimeLeftInTicks();
+			if (timeLeft > 0)
+			{
+				bukkitPlayer.addPotionEffect(new PotionEffect(type, timeLeft, details.getAmplifier(), details.isAmbient(), details.isParticles()), true);
+			}
+
+			removedEffects.remove();
+		}
+	}
+
+	private static PotionEffectDetails toDetails(PotionEffect effect)
+	{
+		return new PotionEffectDetails(System.nanoTime() + (long) (effect.getDuration() / 20D * TimeUnit.SECONDS.toNanos(1L)), effect.getAmplifier(), effect.isAmbient(), effect.hasParticles());
+	}
+}
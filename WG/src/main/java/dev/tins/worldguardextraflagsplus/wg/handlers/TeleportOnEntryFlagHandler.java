@@ -67,7 +67,7 @@ public class TeleportOnEntryFlagHandler extends FlagValueChangeHandler<Location>
 
 	public void handleValue(LocalPlayer player, World world, Location value)
 	{
-		if (this.getSession().getManager().hasBypass(player, world))
+		if (BypassHandler.hasBypass(this.getSession(), player, world))
 		{
 			return;
 		}
@@ -82,7 +82,7 @@ public class TeleportOnEntryFlagHandler extends FlagValueChangeHandler<Location>
 				return;
 			}
 			
-			WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
+			WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
 				player.setLocation(value);
 			});
 		}
@@ -68,7 +68,7 @@ public class TeleportOnExitFlagHandler extends FlagValueChangeHandler<Location>
 
 	public void handleValue(LocalPlayer player, World world, Location value)
 	{
-		if (this.getSession().getManager().hasBypass(player, world))
+		if (BypassHandler.hasBypass(this.getSession(), player, world))
 		{
 			return;
 		}
@@ -83,7 +83,7 @@ public class TeleportOnExitFlagHandler extends FlagValueChangeHandler<Location>
 				return;
 			}
 			
-			WorldGuardUtils.getScheduler().runAtEntity(bukkitPlayer, task -> {
+			WorldGuardUtils.getScheduler().queueAtEntity(bukkitPlayer, this, () -> {
 				player.setLocation(value);
 			});
 		}
@@ -0,0 +1,105 @@
+package dev.tins.worldguardextraflagsplus.wg.placeholders;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Soft dependency bridge to PlaceholderAPI.
+ * The API is resolved once into a method handle and kept in sync with
+ * PlaceholderAPI being enabled or disabled, so lookups never touch reflection.
+ */
+public class PlaceholderBridge implements Listener
+{
+	private static final String PLUGIN_NAME = "PlaceholderAPI";
+	private static final String API_CLASS = "me.clip.placeholderapi.PlaceholderAPI";
+
+	private static final MethodType SET_PLACEHOLDERS_TYPE = MethodType.methodType(String.class, Player.class, String.class);
+
+	private final Plugin plugin;
+
+	// Null while PlaceholderAPI is absent or disabled
+	private volatile MethodHandle setPlaceholders;
+
+	public PlaceholderBridge(Plugin plugin)
+	{
+		this.plugin = plugin;
+
+		this.resolve(plugin.getServer().getPluginManager().getPlugin(PlaceholderBridge.PLUGIN_NAME));
+	}
+
+	public boolean isAvailable()
+	{
+		return this.setPlaceholders != null;
+	}
+
+	/**
+	 * Replaces the placeholders in the given text.
+	 * Returns null if PlaceholderAPI is not available or failed to process the text.
+	 */
+	public String setPlaceholders(Player player, String text)
+	{
+		MethodHandle setPlaceholders = this.setPlaceholders;
+		if (setPlaceholders == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return (String) setPlaceholders.invokeExact(player, text);
+		}
+		catch (Throwable e)
+		{
+			return null;
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPluginEnableEvent(PluginEnableEvent event)
+	{
+		if (event.getPlugin().getName().equals(PlaceholderBridge.PLUGIN_NAME))
+		{
+			this.resolve(event.getPlugin());
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPluginDisableEvent(PluginDisableEvent event)
+	{
+		if (event.getPlugin().getName().equals(PlaceholderBridge.PLUGIN_NAME))
+		{
+			this.setPlaceholders = null;
+		}
+	}
+
+	private void resolve(Plugin placeholderPlugin)
+	{
+		if (placeholderPlugin == null || !placeholderPlugin.isEnabled())
+		{
+			this.setPlaceholders = null;
+			return;
+		}
+
+		try
+		{
+			Class<?> apiClass = Class.forName(PlaceholderBridge.API_CLASS, true, placeholderPlugin.getClass().getClassLoader());
+
+			this.setPlaceholders = MethodHandles.publicLookup().findStatic(apiClass, "setPlaceholders", PlaceholderBridge.SET_PLACEHOLDERS_TYPE);
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			this.setPlaceholders = null;
+
+			this.plugin.getLogger().warning("Failed to hook into PlaceholderAPI: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,367 @@
+package dev.tins.worldguardextraflagsplus.wg.placeholders;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * Bounded cache of PlaceholderAPI results per player and template, shared by every placeholder consumer.
+ * Entries expire after the TTL of the placeholders in their template, a template with several placeholders uses the shortest TTL.
+ * Expired entries are dropped on access and by {@link #sweep()}, so players that left are not kept around.
+ * Each player has their own map keyed by template, so a lookup allocates nothing and only locks the entries of that player.
+ * Once the size cap is reached the least recently used entry of the player caching a new one is evicted,
+ * or an entry of another player if that was their only one.
+ */
+public class PlaceholderCache
+{
+	private static final int DEFAULT_MAX_SIZE = 10000;
+	private static final long DEFAULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+	// Templates come from region flags, this only guards against unbounded growth
+	private static final int MAX_TEMPLATES = 1024;
+
+	private final PlaceholderBridge placeholderBridge;
+
+	// Players with cached entries, a map is retired once it is removed so late writers create a new one
+	private final Map<UUID, PlayerEntries> players = new ConcurrentHashMap<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final Map<String, Long> templateTtls = new ConcurrentHashMap<>();
+
+	private volatile int maxSize = PlaceholderCache.DEFAULT_MAX_SIZE;
+	private volatile long defaultTtlMillis = PlaceholderCache.DEFAULT_TTL_MILLIS;
+	private volatile Map<String, Long> placeholderTtls = Map.of();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	public PlaceholderCache(PlaceholderBridge placeholderBridge)
+	{
+		this.placeholderBridge = placeholderBridge;
+	}
+
+	/**
+	 * Loads the size cap and TTLs, clearing every cached result.
+	 *
+	 * @param section The placeholder cache section, null to use the defaults
+	 */
+	public void load(ConfigurationSection section)
+	{
+		int maxSize = PlaceholderCache.DEFAULT_MAX_SIZE;
+		long defaultTtlMillis = PlaceholderCache.DEFAULT_TTL_MILLIS;
+		Map<String, Long> placeholderTtls = new HashMap<>();
+
+		if (section != null)
+		{
+			maxSize = Math.max(0, section.getInt("max-size", maxSize));
+			defaultTtlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, section.getLong("default-ttl", TimeUnit.MILLISECONDS.toSeconds(defaultTtlMillis))));
+
+			ConfigurationSection ttls = section.getConfigurationSection("ttl");
+			if (ttls != null)
+			{
+				for (String placeholder : ttls.getKeys(false))
+				{
+					placeholderTtls.put(placeholder, TimeUnit.SECONDS.toMillis(Math.max(0, ttls.getLong(placeholder))));
+				}
+			}
+		}
+
+		this.maxSize = maxSize;
+		this.defaultTtlMillis = defaultTtlMillis;
+		this.placeholderTtls = Map.copyOf(placeholderTtls);
+
+		this.templateTtls.clear();
+		this.invalidateAll();
+	}
+
+	/**
+	 * Replaces the placeholders in the given template, using a cached result while it is fresh.
+	 * Returns null if PlaceholderAPI is not available or failed to process the template.
+	 */
+	public String setPlaceholders(Player player, String template)
+	{
+		if (!this.placeholderBridge.isAvailable())
+		{
+			return null;
+		}
+
+		long ttlMillis = this.getTtlMillis(template);
+		if (ttlMillis <= 0 || this.maxSize <= 0)
+		{
+			this.misses.increment();
+			return this.placeholderBridge.setPlaceholders(player, template);
+		}
+
+		UUID playerId = player.getUniqueId();
+		long now = System.currentTimeMillis();
+
+		PlayerEntries entries = this.players.get(playerId);
+		if (entries != null)
+		{
+			synchronized (entries)
+			{
+				Entry entry = entries.get(template);
+				if (entry != null)
+				{
+					if (entry.expiresAt() > now)
+					{
+						this.hits.increment();
+						return entry.value();
+					}
+
+					entries.remove(template);
+					this.size.decrementAndGet();
+					this.expirations.increment();
+				}
+			}
+		}
+
+		this.misses.increment();
+
+		// Resolved outside of the lock, PlaceholderAPI expansions can be slow
+		String value = this.placeholderBridge.setPlaceholders(player, template);
+		if (value != null)
+		{
+			this.put(playerId, template, new Entry(value, now + ttlMillis));
+		}
+
+		return value;
+	}
+
+	/**
+	 * Drops every expired entry. Safe to call off the main thread.
+	 */
+	public void sweep()
+	{
+		long now = System.currentTimeMillis();
+
+		for (Map.Entry<UUID, PlayerEntries> player : this.players.entrySet())
+		{
+			PlayerEntries entries = player.getValue();
+			synchronized (entries)
+			{
+				Iterator<Entry> iterator = entries.values().iterator();
+				while (iterator.hasNext())
+				{
+					if (iterator.next().expiresAt() <= now)
+					{
+						iterator.remove();
+						this.size.decrementAndGet();
+						this.expirations.increment();
+					}
+				}
+
+				if (entries.isEmpty())
+				{
+					entries.retired = true;
+					this.players.remove(player.getKey(), entries);
+				}
+			}
+		}
+	}
+
+	public void invalidate(UUID playerId)
+	{
+		PlayerEntries entries = this.players.remove(playerId);
+		if (entries == null)
+		{
+			return;
+		}
+
+		synchronized (entries)
+		{
+			entries.retired = true;
+			this.size.addAndGet(-entries.size());
+			entries.clear();
+		}
+	}
+
+	public void invalidateAll()
+	{
+		for (UUID playerId : this.players.keySet())
+		{
+			this.invalidate(playerId);
+		}
+	}
+
+	public int size()
+	{
+		return this.size.get();
+	}
+
+	public long getHits()
+	{
+		return this.hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return this.misses.sum();
+	}
+
+	/**
+	 * Entries dropped because the size cap was reached.
+	 */
+	public long getEvictions()
+	{
+		return this.evictions.sum();
+	}
+
+	/**
+	 * Entries dropped because their TTL passed.
+	 */
+	public long getExpirations()
+	{
+		return this.expirations.sum();
+	}
+
+	private void put(UUID playerId, String template, Entry entry)
+	{
+		PlayerEntries entries;
+		while (true)
+		{
+			entries = this.players.computeIfAbsent(playerId, key -> new PlayerEntries());
+			synchronized (entries)
+			{
+				// Invalidated meanwhile, the next lookup finds the new map
+				if (entries.retired)
+				{
+					continue;
+				}
+
+				if (entries.put(template, entry) == null)
+				{
+					this.size.incrementAndGet();
+				}
+
+				break;
+			}
+		}
+
+		// Evicted outside of the lock, only one player's entries are locked at a time
+		while (this.size.get() > this.maxSize)
+		{
+			if (!this.evictEldest(entries, 1) && !this.evictEldestOfOthers(entries))
+			{
+				break;
+			}
+		}
+	}
+
+	private boolean evictEldestOfOthers(PlayerEntries entries)
+	{
+		for (PlayerEntries other : this.players.values())
+		{
+			if (other != entries && this.evictEldest(other, 0))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Evicts the least recently used entry of the player, unless only the given number of entries is left.
+	 */
+	private boolean evictEldest(PlayerEntries entries, int keep)
+	{
+		synchronized (entries)
+		{
+			if (entries.retired || entries.size() <= keep)
+			{
+				return false;
+			}
+
+			Iterator<Entry> iterator = entries.values().iterator();
+			iterator.next();
+			iterator.remove();
+
+			this.size.decrementAndGet();
+			this.evictions.increment();
+			return true;
+		}
+	}
+
+	private long getTtlMillis(String template)
+	{
+		Long ttlMillis = this.templateTtls.get(template);
+		if (ttlMillis == null)
+		{
+			ttlMillis = this.computeTtlMillis(template);
+
+			if (this.templateTtls.size() >= PlaceholderCache.MAX_TEMPLATES)
+			{
+				this.templateTtls.clear();
+			}
+
+			this.templateTtls.put(template, ttlMillis);
+		}
+
+		return ttlMillis;
+	}
+
+	private long computeTtlMillis(String template)
+	{
+		Map<String, Long> placeholderTtls = this.placeholderTtls;
+		if (placeholderTtls.isEmpty())
+		{
+			return this.defaultTtlMillis;
+		}
+
+		long ttlMillis = Long.MAX_VALUE;
+		boolean found = false;
+
+		// Placeholders are %identifier% pairs
+		int start = template.indexOf('%');
+		while (start >= 0)
+		{
+			int end = template.indexOf('%', start + 1);
+			if (end < 0)
+			{
+				break;
+			}
+
+			Long placeholderTtl = placeholderTtls.get(template.substring(start, end + 1));
+			if (placeholderTtl != null)
+			{
+				ttlMillis = Math.min(ttlMillis, placeholderTtl);
+				found = true;
+			}
+			else
+			{
+				ttlMillis = Math.min(ttlMillis, this.defaultTtlMillis);
+			}
+
+			start = template.indexOf('%', end + 1);
+		}
+
+		return found ? ttlMillis : this.defaultTtlMillis;
+	}
+
+	// Access ordered by template, guarded by itself
+	private static class PlayerEntries extends LinkedHashMap<String, Entry>
+	{
+		private boolean retired;
+
+		private PlayerEntries()
+		{
+			super(16, 0.75f, true);
+		}
+	}
+
+	private record Entry(String value, long expiresAt)
+	{
+	}
+}